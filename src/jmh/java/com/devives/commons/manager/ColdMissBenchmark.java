@@ -0,0 +1,189 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager;
+
+import com.devives.commons.manager.lock.RWLockSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cold-miss storm on a single key: one thread removes the object, the others race to create it again.
+ * <p>
+ * The {@code upgradable} parameter switches off the upgradable read mode of {@link RWLockSource}, the missing threads
+ * then upgrade through {@link Manager.Lock#upgradeLock()} with the release window. The count of write lock
+ * acquisitions per created object is printed after each iteration, it is the count of lock handoffs between
+ * the racing threads:
+ * <pre>{@code
+ * gradle jmh -PjmhArgs="ColdMissBenchmark"
+ * }</pre>
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColdMissBenchmark {
+
+    private static final Integer KEY = 0;
+
+    @Param({"true", "false"})
+    public boolean upgradable;
+
+    private final LongAdder created_ = new LongAdder();
+    private final LongAdder upgrades_ = new LongAdder();
+    private Manager<Integer, Object> manager_;
+    private ObjectFactory<Object> factory_;
+
+    @Setup
+    public void setup() {
+        manager_ = new ConcurrentHashManager<>(new CountingLockSource<>(new RWLockSource<>(false), upgradable, upgrades_));
+        factory_ = () -> {
+            created_.increment();
+            return new Object();
+        };
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters() {
+        created_.reset();
+        upgrades_.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printCounters() {
+        System.out.printf("%n upgrades per created object: %.2f%n", upgrades_.doubleValue() / Math.max(1L, created_.sum()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager_.clear();
+    }
+
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(7)
+    public Object computeIfAbsent() {
+        return manager_.computeIfAbsent(KEY, factory_);
+    }
+
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(1)
+    public Object remove() {
+        return manager_.remove(KEY);
+    }
+
+    /**
+     * Counts the upgrades to the write lock. Hides the upgradable read mode of the delegate, if it is disabled.
+     */
+    private static final class CountingLockSource<K> implements Manager.LockSource<K> {
+        private final Manager.LockSource<K> delegate_;
+        private final boolean upgradable_;
+        private final LongAdder upgrades_;
+
+        CountingLockSource(Manager.LockSource<K> delegate, boolean upgradable, LongAdder upgrades) {
+            delegate_ = delegate;
+            upgradable_ = upgradable;
+            upgrades_ = upgrades;
+        }
+
+        @Override
+        public Manager.Lock acquire(K k) {
+            final Manager.Lock lock = delegate_.acquire(k);
+            return upgradable_ ? new UpgradableLock(lock, upgrades_) : new CountingLock(lock, upgrades_);
+        }
+
+        @Override
+        public void release(K k) {
+            delegate_.release(k);
+        }
+    }
+
+    private static class CountingLock implements Manager.Lock {
+        final Manager.Lock delegate_;
+        final LongAdder upgrades_;
+
+        CountingLock(Manager.Lock delegate, LongAdder upgrades) {
+            delegate_ = delegate;
+            upgrades_ = upgrades;
+        }
+
+        @Override
+        public void lockRead() {
+            delegate_.lockRead();
+        }
+
+        @Override
+        public void unlockRead() {
+            delegate_.unlockRead();
+        }
+
+        @Override
+        public void lockWrite() {
+            delegate_.lockWrite();
+        }
+
+        @Override
+        public void unlockWrite() {
+            delegate_.unlockWrite();
+        }
+
+        @Override
+        public void upgradeLock() {
+            delegate_.upgradeLock();
+            upgrades_.increment();
+        }
+
+        @Override
+        public void downgradeLock() {
+            delegate_.downgradeLock();
+        }
+    }
+
+    private static final class UpgradableLock extends CountingLock {
+
+        UpgradableLock(Manager.Lock delegate, LongAdder upgrades) {
+            super(delegate, upgrades);
+        }
+
+        @Override
+        public void lockUpgradableRead() {
+            delegate_.lockUpgradableRead();
+        }
+
+        @Override
+        public void unlockUpgradableRead() {
+            delegate_.unlockUpgradableRead();
+        }
+
+        @Override
+        public boolean upgradeUpgradableRead() {
+            final boolean atomic = delegate_.upgradeUpgradableRead();
+            upgrades_.increment();
+            return atomic;
+        }
+
+        @Override
+        public void downgradeToUpgradableRead() {
+            delegate_.downgradeToUpgradableRead();
+        }
+    }
+
+}
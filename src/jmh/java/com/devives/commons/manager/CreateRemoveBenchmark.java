@@ -0,0 +1,64 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager;
+
+import com.devives.commons.manager.lock.RWLockSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Churn of create/remove cycles on a single key, i.e. the lifecycle pipeline of an entry: create, start, add,
+ * remove, stop and destroy.
+ * <p>
+ * Run with the GC profiler to see the allocation rate per operation:
+ * <pre>{@code
+ * gradle jmh -PjmhArgs="CreateRemoveBenchmark -prof gc"
+ * }</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreateRemoveBenchmark {
+
+    private static final Integer KEY = 0;
+    private static final Object OBJECT = new Object();
+    private static final ObjectFactory<Object> FACTORY = () -> OBJECT;
+
+    private Manager<Integer, Object> manager_;
+
+    @Setup
+    public void setup() {
+        // Idle locks are kept, the benchmark measures the pipeline, not the lock churn.
+        manager_ = new ConcurrentHashManager<>(new RWLockSource<>(false, 1024));
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager_.clear();
+    }
+
+    @Benchmark
+    public Object computeIfAbsentAndRemove() {
+        manager_.computeIfAbsent(KEY, FACTORY);
+        return manager_.remove(KEY);
+    }
+
+}
@@ -0,0 +1,67 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager;
+
+import com.devives.commons.manager.lock.RWLockSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lock churn of repeated hits on a single key, i.e. the allocation and the map writes of a lock per hit.
+ * <p>
+ * Run with the GC profiler to see the allocation rate per operation:
+ * <pre>{@code
+ * gradle jmh -PjmhArgs="LockChurnBenchmark -prof gc"
+ * }</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LockChurnBenchmark {
+
+    private static final Integer KEY = 0;
+    private static final ObjectFactory<Object> FACTORY = Object::new;
+
+    /**
+     * {@code 0} reclaims a lock on its last release, a positive count keeps idle locks for reuse.
+     */
+    @Param({"0", "1024"})
+    public int maxIdleLocks;
+
+    private Manager<Integer, Object> manager_;
+
+    @Setup
+    public void setup() {
+        manager_ = new ConcurrentHashManager<>(new RWLockSource<>(false, maxIdleLocks));
+        manager_.computeIfAbsent(KEY, FACTORY);
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager_.clear();
+    }
+
+    @Benchmark
+    public Object getIfPresent() {
+        return manager_.getIfPresent(KEY);
+    }
+
+}
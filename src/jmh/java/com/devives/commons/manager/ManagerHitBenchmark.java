@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager;
+
+import com.devives.commons.manager.lock.RWLockSource;
+import com.devives.commons.manager.lock.ReadBiasedLockSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of hits on already started objects.
+ * <p>
+ * Run with different thread counts to see how the hit path scales, e.g. from 1 to 16 threads on a single key:
+ * <pre>{@code
+ * for t in 1 2 4 8 16; do gradle jmh -PjmhArgs="ManagerHitBenchmark -p keyCount=1 -t $t"; done
+ * }</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ManagerHitBenchmark {
+
+    private static final ObjectFactory<Object> FACTORY = Object::new;
+
+    /**
+     * The manager engine and its lock source.
+     */
+    @Param({"RWLockSource", "ReadBiasedLockSource", "EntryLock"})
+    public String engine;
+
+    /**
+     * Count of keys the threads are hitting. A single key shows the contention on one lock.
+     */
+    @Param({"1", "1024"})
+    public int keyCount;
+
+    /**
+     * Whether the lookups are served by the frozen snapshot, see {@link AbstractManager#freeze()}.
+     */
+    @Param({"false", "true"})
+    public boolean frozen;
+
+    /**
+     * Capacity of the per-thread near cache, see {@link AbstractManager#setNearCacheCapacity(int)}.
+     */
+    @Param({"0", "16"})
+    public int nearCacheCapacity;
+
+    private Manager<Integer, Object> manager_;
+    private Integer[] keys_;
+    private int mask_;
+
+    @Setup
+    public void setup() {
+        manager_ = newManager(engine);
+        final int size = Integer.highestOneBit(keyCount);
+        keys_ = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys_[i] = i;
+            manager_.computeIfAbsent(keys_[i], FACTORY);
+        }
+        mask_ = size - 1;
+        final AbstractManager<Integer, Object> abstractManager = (AbstractManager<Integer, Object>) manager_;
+        abstractManager.setNearCacheCapacity(nearCacheCapacity);
+        if (frozen) {
+            abstractManager.freeze();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager_.clear();
+    }
+
+    static <K, O> Manager<K, O> newManager(String engine) {
+        switch (engine) {
+            case "RWLockSource":
+                return new ConcurrentHashManager<>(new RWLockSource<>(false));
+            case "ReadBiasedLockSource":
+                return new ConcurrentHashManager<>(new ReadBiasedLockSource<>());
+            case "EntryLock":
+                return new EntryLockHashManager<>(false);
+            default:
+                throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int index_;
+
+        int next(int mask) {
+            return index_++ & mask;
+        }
+    }
+
+    @Benchmark
+    public Object getIfPresent(Cursor cursor) {
+        return manager_.getIfPresent(keys_[cursor.next(mask_)]);
+    }
+
+    @Benchmark
+    public Object computeIfAbsent(Cursor cursor) {
+        return manager_.computeIfAbsent(keys_[cursor.next(mask_)], FACTORY);
+    }
+
+}
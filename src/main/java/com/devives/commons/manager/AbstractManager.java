@@ -17,12 +17,19 @@
 package com.devives.commons.manager;
 
 import com.devives.commons.lang.ExceptionUtils;
-import com.devives.commons.lang.call.Try;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -37,6 +44,12 @@ import static com.devives.commons.manager.Manager.*;
  */
 public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializable {
     private static final long serialVersionUID = 1L;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<AbstractManager> MOD_COUNT =
+            AtomicLongFieldUpdater.newUpdater(AbstractManager.class, "modCount_");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<AbstractManager, FrozenEntryTable> FROZEN =
+            AtomicReferenceFieldUpdater.newUpdater(AbstractManager.class, FrozenEntryTable.class, "frozen_");
 
     private final Map<K, Entry<O>> entryMap_;
     private final LockSource<K> lockSource_;
@@ -46,6 +59,27 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
      * Done similarly to java.util.concurrent.ConcurrentHashMap#values.
      */
     private transient Collection<O> values;
+    /**
+     * Count of the modifications of {@link #entryMap_}: entries added, removed or put with a new object.
+     */
+    private transient volatile long modCount_;
+    /**
+     * Array of the values cached by {@link #valuesSnapshot()}, tagged by {@link #modCount_}.
+     */
+    private transient volatile ValuesSnapshot<O> valuesSnapshot_;
+    /**
+     * Snapshot of {@link #entryMap_} serving the lookups while the manager is frozen, else {@code null}. The snapshot
+     * serves the lookups only while it is tagged by the current {@link #modCount_}.
+     */
+    private transient volatile FrozenEntryTable<K, O> frozen_;
+    /**
+     * Capacity of the per-thread near caches, {@code 0} if disabled.
+     */
+    private int nearCacheCapacity_;
+    /**
+     * Per-thread near caches of the started entries, {@code null} if disabled.
+     */
+    private transient volatile ThreadLocal<NearCache<K, O>> nearCache_;
 
     protected AbstractManager(Map<K, Entry<O>> entryMap) {
         this(entryMap,
@@ -64,6 +98,97 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
         hooks_ = Objects.requireNonNull(hooks, "hooks");
     }
 
+    /**
+     * Freezes the manager: the entries are looked up in an immutable open-addressing snapshot of the entry map instead
+     * of the map itself. Together with the lock-free hits of {@link Entry.State#STARTED} entries, a hit of
+     * {@link #get(Object)}, {@link #getIfPresent(Object)} or {@link #computeIfAbsent(Object, ObjectFactory)} costs an
+     * array probe plus volatile reads, without locks and without calls of the {@link LockSource}.
+     * <p>
+     * Intended for managers populated at startup and rarely changed. Writes are not rejected: an entry added or
+     * removed, including the replace of an object by {@link #put(Object, ObjectFactory)}, thaws the manager, the
+     * lookups return to the entry map until the next call of this method.
+     * <p>
+     * A snapshot taken concurrently with a structural modification is discarded. The snapshot is tagged by the
+     * modification count read before it is built, and the lookups use it only while the count is unchanged, so a
+     * stale snapshot is never used, even if published after the modification.
+     *
+     * @return {@code true} if the manager is frozen, {@code false} if the snapshot was discarded.
+     */
+    public boolean freeze() {
+        final long modCount = modCount_;
+        final FrozenEntryTable<K, O> frozen = new FrozenEntryTable<>(modCount, entryMap_);
+        if (modCount_ != modCount) {
+            // An entry was added or removed while the snapshot was built, the snapshot may miss it.
+            return false;
+        }
+        FrozenEntryTable<K, O> current;
+        do {
+            current = frozen_;
+            if (current != null && current.getModCount() >= modCount) {
+                // A concurrent freeze has published a snapshot at least as recent.
+                return isFrozen();
+            }
+        } while (!FROZEN.compareAndSet(this, current, frozen));
+        if (modCount_ != modCount) {
+            // Modified after the check, the thaw may have preceded the publication.
+            FROZEN.compareAndSet(this, frozen, null);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the lookups to the entry map.
+     *
+     * @see #freeze()
+     */
+    public void unfreeze() {
+        frozen_ = null;
+    }
+
+    /**
+     * @return {@code true} if the entries are looked up in the frozen snapshot.
+     * @see #freeze()
+     */
+    public boolean isFrozen() {
+        final FrozenEntryTable<K, O> frozen = frozen_;
+        return frozen != null && frozen.getModCount() == modCount_;
+    }
+
+    /**
+     * Enables the per-thread near cache of the {@link Entry.State#STARTED} entries in front of the entry map.
+     * <p>
+     * Intended for a handful of extremely hot keys: a hit of a cached key reads neither the shared entry map nor
+     * the {@link LockSource}. The cache of a thread is direct-mapped by the hash of the key, colliding keys evict
+     * each other. A cached entry is validated by its lifecycle state on every hit, so a removed or being replaced
+     * entry is never served.
+     * <p>
+     * Each thread accessing the manager allocates its own cache of the given capacity, the caches are
+     * reachable while the threads are alive. The near cache is not used, if {@link #isOnEntryGotLockRequired()}.
+     *
+     * @param capacity count of the cached entries per thread, rounded up to a power of two. {@code 0} disables the cache.
+     */
+    public void setNearCacheCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("The capacity must not be negative: " + capacity);
+        }
+        nearCacheCapacity_ = capacity > 1 ? Integer.highestOneBit(capacity - 1) << 1 : capacity;
+        nearCache_ = newNearCache(nearCacheCapacity_);
+    }
+
+    public int getNearCacheCapacity() {
+        return nearCacheCapacity_;
+    }
+
+    private static <K, O> ThreadLocal<NearCache<K, O>> newNearCache(int capacity) {
+        return capacity > 0 ? ThreadLocal.withInitial(() -> new NearCache<>(capacity)) : null;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        nearCache_ = newNearCache(nearCacheCapacity_);
+    }
+
     @Override
     public boolean containsKey(K key) {
         Objects.requireNonNull(key);
@@ -100,6 +225,39 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
         return vals;
     }
 
+    /**
+     * Returns an unmodifiable list of the values, backed by an array, which is cached and rebuilt lazily on the
+     * first call after a modification of the manager: an entry added, replaced or removed. While the manager is not
+     * modified, the same list is returned and the iteration over it is a walk over the array.
+     * <p>
+     * The list is not a view, it contains the values of the moment of the rebuild, like an iteration over
+     * {@link #values()}.
+     *
+     * @return unmodifiable list of values
+     */
+    @Override
+    public List<O> valuesSnapshot() {
+        // The count is read before the rebuild, so a modification during the rebuild leaves the snapshot stale.
+        final long modCount = modCount_;
+        ValuesSnapshot<O> snapshot = valuesSnapshot_;
+        if (snapshot == null || snapshot.modCount_ != modCount) {
+            snapshot = new ValuesSnapshot<>(modCount, values().toArray());
+            valuesSnapshot_ = snapshot;
+        }
+        return snapshot.values_;
+    }
+
+    private static final class ValuesSnapshot<O> {
+        private final long modCount_;
+        private final List<O> values_;
+
+        @SuppressWarnings("unchecked")
+        private ValuesSnapshot(long modCount, Object[] values) {
+            modCount_ = modCount;
+            values_ = Collections.unmodifiableList((List<O>) Arrays.asList(values));
+        }
+    }
+
     protected Collection<O> createValuesCollection(Supplier<Collection<Entry<O>>> valuesSupplier) {
         return new ValuesCollection<>(valuesSupplier);
     }
@@ -121,6 +279,17 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
             return new ValuesIterator<>(values().iterator());
         }
 
+        /**
+         * Returns a spliterator over the started objects, which splits as the spliterator of the entry map values.
+         * The entries without an object (being created or removed) are skipped, so the spliterator is
+         * {@link Spliterator#NONNULL} and is not {@link Spliterator#SIZED}. The {@link Spliterator#CONCURRENT}
+         * characteristic is inherited from the entry map.
+         */
+        @Override
+        public Spliterator<O> spliterator() {
+            return new ValuesSpliterator<>(values().spliterator());
+        }
+
         @Override
         public int size() {
             return values().size();
@@ -154,6 +323,62 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
                 return iterator_.next().getObject();
             }
         }
+
+        protected static class ValuesSpliterator<O> implements Spliterator<O> {
+            private final Spliterator<Entry<O>> spliterator_;
+            private final Consumer<Entry<O>> valueSetter_ = this::setValue;
+            private O value_;
+
+            public ValuesSpliterator(Spliterator<Entry<O>> spliterator) {
+                spliterator_ = Objects.requireNonNull(spliterator);
+            }
+
+            @Override
+            public boolean tryAdvance(Consumer<? super O> action) {
+                Objects.requireNonNull(action);
+                while (spliterator_.tryAdvance(valueSetter_)) {
+                    final O value = value_;
+                    if (value != null) {
+                        value_ = null;
+                        action.accept(value);
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public void forEachRemaining(Consumer<? super O> action) {
+                Objects.requireNonNull(action);
+                spliterator_.forEachRemaining(entry -> {
+                    final O value = entry.getObject();
+                    if (value != null) {
+                        action.accept(value);
+                    }
+                });
+            }
+
+            @Override
+            public Spliterator<O> trySplit() {
+                final Spliterator<Entry<O>> prefix = spliterator_.trySplit();
+                return prefix != null ? new ValuesSpliterator<>(prefix) : null;
+            }
+
+            @Override
+            public long estimateSize() {
+                return spliterator_.estimateSize();
+            }
+
+            @Override
+            public int characteristics() {
+                return (spliterator_.characteristics() | Spliterator.NONNULL)
+                        & ~(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.SORTED | Spliterator.DISTINCT);
+            }
+
+            private void setValue(Entry<O> entry) {
+                value_ = entry.getObject();
+            }
+        }
     }
 
 
@@ -171,12 +396,73 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
         }
     }
 
+    @Override
+    public O get(K key, long timeout, TimeUnit unit) throws ManagerException, InterruptedException {
+        try {
+            Objects.requireNonNull(key);
+            Objects.requireNonNull(unit);
+            final O result = doGet(key, unit.toNanos(timeout));
+            if (result == null) {
+                throw new ManagerException(String.format("The manager does not contain an object with the key '%s'.", key), null);
+            }
+            return result;
+        } catch (Exception e) {
+            throw ExceptionUtils.asUnchecked(e);
+        }
+    }
+
     @Override
     public O getIfPresent(K key) {
         Objects.requireNonNull(key);
         return doGetIfPresent(key, true);
     }
 
+    @Override
+    public Map<K, O> getAll(Collection<? extends K> keys) throws ManagerException {
+        Objects.requireNonNull(keys, "The keys value is required.");
+        return doGetAll(keys, true);
+    }
+
+    @Override
+    public Map<K, O> getAllPresent(Collection<? extends K> keys) {
+        Objects.requireNonNull(keys, "The keys value is required.");
+        return doGetAll(keys, false);
+    }
+
+    /**
+     * Looks the keys up in a single pass. The hits of {@link Entry.State#STARTED} entries take no locks, other keys
+     * are read by {@link #doGetIfPresent(Object, boolean)}. Duplicate keys, present or missing, are looked up once.
+     * Nothing is allocated per present key, except the nodes of the result map.
+     *
+     * @param keys     keys
+     * @param required {@code true} if every key must be present.
+     * @return new map of the present keys to the objects.
+     * @throws ManagerException if {@code required} and any of the keys is not present.
+     */
+    protected Map<K, O> doGetAll(Collection<? extends K> keys, boolean required) {
+        final Map<K, O> result = new LinkedHashMap<>((int) (keys.size() / 0.75f) + 1);
+        Set<K> missingKeys = null;
+        for (K key : keys) {
+            Objects.requireNonNull(key, "The key value is required.");
+            if (result.containsKey(key) || (missingKeys != null && missingKeys.contains(key))) {
+                continue;
+            }
+            final O object = doGetIfPresent(key, true);
+            if (object != null) {
+                result.put(key, object);
+            } else {
+                if (missingKeys == null) {
+                    missingKeys = new LinkedHashSet<>();
+                }
+                missingKeys.add(key);
+            }
+        }
+        if (required && missingKeys != null) {
+            throw ExceptionUtils.asUnchecked(new ManagerException(String.format("The manager does not contain objects with the keys %s.", missingKeys), null));
+        }
+        return result;
+    }
+
     @Override
     public O computeIfAbsent(K key, Function<K, O> factory) {
         return computeIfAbsent(key, factory, getDefaultAdapter());
@@ -189,11 +475,35 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
 
     @Override
     public O computeIfAbsent(K key, ManagedFactory<O> factory) {
-        return computeIfAbsent(key, factory::createObject, factory);
+        return computeIfAbsent(key, (ObjectFactory<O>) factory, factory);
+    }
+
+    @Override
+    public Map<K, O> computeAllIfAbsent(Collection<? extends K> keys, Function<K, O> factory, Executor executor) {
+        Objects.requireNonNull(keys, "The keys value is required.");
+        Objects.requireNonNull(factory, "The factory value is required.");
+        Objects.requireNonNull(executor, "The executor value is required.");
+        return doComputeAllIfAbsent(keys, factory, getDefaultAdapter(), executor, ParallelTasks.parallelismOf(executor));
+    }
+
+    @Override
+    public Map<K, O> computeAllIfAbsent(Collection<? extends K> keys, Function<K, O> factory, Executor executor, int parallelism) {
+        Objects.requireNonNull(keys, "The keys value is required.");
+        Objects.requireNonNull(factory, "The factory value is required.");
+        Objects.requireNonNull(executor, "The executor value is required.");
+        return doComputeAllIfAbsent(keys, factory, getDefaultAdapter(), executor, parallelism);
     }
 
     @Override
     public O computeIfAbsent(K key, Function<K, O> factory, ManagedAdapter<O> adapter) {
+        Objects.requireNonNull(key, "The key value is required.");
+        Objects.requireNonNull(factory, "The factory value is required.");
+        Objects.requireNonNull(adapter, "The adapter value is required.");
+        // The hit is served before the factory wrapper is allocated.
+        final O result = doGetStartedIfPresent(key, true);
+        if (result != null) {
+            return result;
+        }
         return computeIfAbsent(key, new KeyedObjectFactory<>(key, factory), adapter);
     }
 
@@ -209,7 +519,32 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
         }
     }
 
-    private static class KeyedObjectFactory<K, O> implements ObjectFactory<O> {
+    @Override
+    public O computeIfAbsent(K key, Function<K, O> factory, long timeout, TimeUnit unit) throws LockTimeoutException, InterruptedException {
+        Objects.requireNonNull(key, "The key value is required.");
+        Objects.requireNonNull(factory, "The factory value is required.");
+        Objects.requireNonNull(unit, "The unit value is required.");
+        final O result = doGetStartedIfPresent(key, true);
+        if (result != null) {
+            return result;
+        }
+        return computeIfAbsent(key, new KeyedObjectFactory<>(key, factory), getDefaultAdapter(), timeout, unit);
+    }
+
+    @Override
+    public O computeIfAbsent(K key, ObjectFactory<O> factory, ManagedAdapter<O> adapter, long timeout, TimeUnit unit) throws LockTimeoutException, InterruptedException {
+        try {
+            Objects.requireNonNull(key, "The key value is required.");
+            Objects.requireNonNull(factory, "The factory value is required.");
+            Objects.requireNonNull(adapter, "The adapter value is required.");
+            Objects.requireNonNull(unit, "The unit value is required.");
+            return doComputeIfAbsent(key, factory, adapter, unit.toNanos(timeout));
+        } catch (Exception e) {
+            throw ExceptionUtils.asUnchecked(e);
+        }
+    }
+
+    static class KeyedObjectFactory<K, O> implements ObjectFactory<O> {
 
         private final K key;
         private final Function<K, O> factory;
@@ -223,6 +558,30 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
         public O createObject() throws Exception {
             return factory.apply(key);
         }
+
+        public K getKey() {
+            return key;
+        }
+    }
+
+    /**
+     * Factory remembering the object it has created. Used by the batch operations to roll back the objects they have
+     * created, when a key of the batch fails.
+     */
+    static class TrackingObjectFactory<K, O> extends KeyedObjectFactory<K, O> {
+
+        private O created;
+
+        public TrackingObjectFactory(K key, Function<K, O> factory) {
+            super(key, factory);
+        }
+
+        @Override
+        public O createObject() throws Exception {
+            final O object = super.createObject();
+            created = object;
+            return object;
+        }
     }
 
     @Override
@@ -232,12 +591,12 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
 
     @Override
     public O put(K key, ObjectFactory<O> factory) {
-        return put(key, factory::createObject, getDefaultAdapter());
+        return put(key, factory, getDefaultAdapter());
     }
 
     @Override
     public O put(K key, ManagedFactory<O> factory) {
-        return put(key, factory::createObject, factory);
+        return put(key, (ObjectFactory<O>) factory, factory);
     }
 
     @Override
@@ -283,6 +642,10 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
     }
 
     protected O doGet(K key) {
+        final O started = doGetStartedIfPresent(key, true);
+        if (started != null) {
+            return started;
+        }
         final Lock entryLock = acquireLock(key);
         try {
             entryLock.lockRead();
@@ -304,6 +667,41 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
         }
     }
 
+    /**
+     * Вариант {@link #doGet(Object)} с ограничением времени ожидания блокировки ключа.
+     *
+     * @param key          ключ объекта
+     * @param timeoutNanos максимальное время ожидания блокировки, нс.
+     * @return найденный объект или null.
+     * @throws LockTimeoutException если блокировка не получена за отведённое время.
+     * @throws InterruptedException если поток прерван во время ожидания блокировки.
+     */
+    protected O doGet(K key, long timeoutNanos) throws Exception {
+        final O started = doGetStartedIfPresent(key, true);
+        if (started != null) {
+            return started;
+        }
+        final Lock entryLock = acquireLock(key);
+        try {
+            requireLocked(entryLock.tryLockRead(timeoutNanos, TimeUnit.NANOSECONDS), key);
+            try {
+                O result = null;
+                final Entry<O> entry = internalGetEntryIfPresent(key);
+                if (entry != null) {
+                    result = entry.getObject();
+                    if (result != null) {
+                        doEntryGot(entry);
+                    }
+                }
+                return result;
+            } finally {
+                entryLock.unlockRead();
+            }
+        } finally {
+            releaseLock(key);
+        }
+    }
+
     /**
      *
      * @param key    ключ объекта
@@ -311,12 +709,32 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
      * @return найденный объект или null.
      */
     protected O doGetIfPresent(K key, boolean notify) {
-        O result = null;
+        O result = doGetNearCached(key, notify);
+        if (result != null) {
+            return result;
+        }
         // Optimistically get entry without lock.
         final Entry<O> entry = internalGetEntryIfPresent(key);
         if (entry != null) {
+            result = doGetStarted(key, entry, notify);
+            if (result != null) {
+                return result;
+            }
             final Lock entryLock = acquireLock(key);
             try {
+                if (!notify || !isOnEntryGotLockRequired()) {
+                    // Read under an optimistic stamp, if the lock supports it. Nothing is written to the lock state.
+                    final long stamp = entryLock.tryOptimisticRead();
+                    if (stamp != 0L) {
+                        result = entry.getObject();
+                        if (entryLock.validate(stamp)) {
+                            if (notify && result != null) {
+                                doEntryGot(entry);
+                            }
+                            return result;
+                        }
+                    }
+                }
                 entryLock.lockRead();
                 try {
                     result = entry.getObject();
@@ -334,39 +752,200 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
         return result;
     }
 
-    protected final O doComputeIfAbsent(final K key, final ObjectFactory<O> factory, final ManagedAdapter<O> adapter) throws Exception {
-        O result = null;
+    protected O doComputeIfAbsent(final K key, final ObjectFactory<O> factory, final ManagedAdapter<O> adapter) throws Exception {
+        O result = doGetStartedIfPresent(key, true);
+        if (result != null) {
+            return result;
+        }
         final Lock entryLock = acquireLock(key);
         try {
+            if (!isOnEntryGotLockRequired()) {
+                final long stamp = entryLock.tryOptimisticRead();
+                if (stamp != 0L) {
+                    final Entry<O> entry = internalGetEntryIfPresent(key);
+                    result = entry != null ? entry.getObject() : null;
+                    if (result != null && entryLock.validate(stamp)) {
+                        doEntryGot(entry);
+                        return result;
+                    }
+                }
+            }
             entryLock.lockRead();
+            try {
+                final Entry<O> entry = internalGetEntryIfPresent(key);
+                final ObjectAndAdapter<O> objectAndAdapter = entry != null ? entry.getObjectAndAdapter() : null;
+                if (objectAndAdapter != null) {
+                    doEntryGot(entry);
+                    return objectAndAdapter.object;
+                }
+            } finally {
+                entryLock.unlockRead();
+            }
+            // Miss. The read lock is released before, a thread waiting for the upgradable lock must not hold it.
+            entryLock.lockUpgradableRead();
             try {
                 Entry<O> entry = internalGetEntryIfPresent(key);
-                if (entry == null) {
-                    entryLock.upgradeLock();
+                final ObjectAndAdapter<O> objectAndAdapter = entry != null ? entry.getObjectAndAdapter() : null;
+                if (objectAndAdapter == null) {
+                    final boolean atomic = entryLock.upgradeUpgradableRead();
                     try {
-                        entry = Optional.ofNullable(internalGetEntryIfPresent(key)).orElseGet(this::doCreateEntry);
-                        assert entry != null;
+                        if (!atomic) {
+                            entry = internalGetEntryIfPresent(key);
+                        }
+                        if (entry == null) {
+                            entry = doCreateEntry();
+                        }
                         if (entry.getObjectAndAdapter() == null) {
                             doInitializeEntry(key, entry, factory, adapter);
                         }
                         result = entry.getObjectAndAdapter().object;
                     } finally {
-                        // Downgrade lock.
-                        entryLock.downgradeLock();
+                        entryLock.downgradeToUpgradableRead();
                     }
                 } else {
                     doEntryGot(entry);
-                    result = entry.getObjectAndAdapter().object;
+                    result = objectAndAdapter.object;
+                }
+            } finally {
+                entryLock.unlockUpgradableRead();
+            }
+        } finally {
+            releaseLock(key);
+        }
+        return result;
+    }
+
+    /**
+     * Вариант {@link #doComputeIfAbsent(Object, ObjectFactory, ManagedAdapter)} с ограничением времени ожидания
+     * блокировки ключа. Время создания и запуска объекта не ограничивается.
+     * <p>
+     * При промахе блокировка чтения освобождается и запрашивается блокировка записи с оставшимся временем ожидания,
+     * после чего наличие записи проверяется повторно.
+     *
+     * @param key          ключ объекта
+     * @param factory      фабрика объекта
+     * @param adapter      адаптер жизненного цикла объекта
+     * @param timeoutNanos максимальное время ожидания блокировки, нс.
+     * @return найденный или созданный объект.
+     * @throws LockTimeoutException если блокировка не получена за отведённое время.
+     * @throws InterruptedException если поток прерван во время ожидания блокировки.
+     */
+    protected O doComputeIfAbsent(final K key, final ObjectFactory<O> factory, final ManagedAdapter<O> adapter, final long timeoutNanos) throws Exception {
+        final O started = doGetStartedIfPresent(key, true);
+        if (started != null) {
+            return started;
+        }
+        final long deadline = System.nanoTime() + timeoutNanos;
+        final Lock entryLock = acquireLock(key);
+        try {
+            requireLocked(entryLock.tryLockRead(timeoutNanos, TimeUnit.NANOSECONDS), key);
+            try {
+                final Entry<O> entry = internalGetEntryIfPresent(key);
+                final ObjectAndAdapter<O> objectAndAdapter = entry != null ? entry.getObjectAndAdapter() : null;
+                if (objectAndAdapter != null) {
+                    doEntryGot(entry);
+                    return objectAndAdapter.object;
                 }
             } finally {
                 entryLock.unlockRead();
             }
+            requireLocked(entryLock.tryLockWrite(deadline - System.nanoTime(), TimeUnit.NANOSECONDS), key);
+            try {
+                Entry<O> entry = internalGetEntryIfPresent(key);
+                if (entry == null) {
+                    entry = doCreateEntry();
+                }
+                if (entry.getObjectAndAdapter() == null) {
+                    doInitializeEntry(key, entry, factory, adapter);
+                } else {
+                    doEntryGot(entry);
+                }
+                return entry.getObjectAndAdapter().object;
+            } finally {
+                entryLock.unlockWrite();
+            }
         } finally {
             releaseLock(key);
         }
+    }
+
+    /**
+     * Returns the object of a {@link Entry.State#STARTED} entry without taking the lock of the key.
+     * <p>
+     * The lock is required only while the entry is being created, replaced or removed, and when
+     * {@link #onEntryGot(Entry)} must be called under the read lock (see {@link #isOnEntryGotLockRequired()}).
+     *
+     * The started entry is put into the near cache of the current thread, if enabled (see {@link #setNearCacheCapacity(int)}).
+     *
+     * @param key    key of the record
+     * @param entry  the record or {@code null}
+     * @param notify flag, indicates the need to call {@link #onEntryGot(Entry)}.
+     * @return started object or {@code null}, if the caller must take the lock.
+     */
+    protected final O doGetStarted(K key, Entry<O> entry, boolean notify) {
+        if (entry == null || (notify && isOnEntryGotLockRequired())) {
+            return null;
+        }
+        final O result = entry.getStartedObject();
+        if (result != null) {
+            final ThreadLocal<NearCache<K, O>> nearCache = nearCache_;
+            if (nearCache != null) {
+                nearCache.get().put(key, entry);
+            }
+            if (notify) {
+                doEntryGot(entry);
+            }
+        }
         return result;
     }
 
+    /**
+     * Looks the key up in the near cache of the current thread, then in the entry map, and returns the object of a
+     * {@link Entry.State#STARTED} entry, see {@link #doGetStarted(Object, Entry, boolean)}.
+     *
+     * @param key    key of the record
+     * @param notify flag, indicates the need to call {@link #onEntryGot(Entry)}.
+     * @return started object or {@code null}, if the caller must take the lock.
+     */
+    protected final O doGetStartedIfPresent(K key, boolean notify) {
+        final O result = doGetNearCached(key, notify);
+        return result != null ? result : doGetStarted(key, internalGetEntryIfPresent(key), notify);
+    }
+
+    /**
+     * Looks the key up in the near cache of the current thread only, see {@link #setNearCacheCapacity(int)}.
+     *
+     * @param key    key of the record
+     * @param notify flag, indicates the need to call {@link #onEntryGot(Entry)}.
+     * @return started object or {@code null}, if the key is not cached or the near cache is disabled.
+     */
+    protected final O doGetNearCached(K key, boolean notify) {
+        final ThreadLocal<NearCache<K, O>> nearCache = nearCache_;
+        if (nearCache == null || (notify && isOnEntryGotLockRequired())) {
+            return null;
+        }
+        final Entry<O> entry = nearCache.get().get(key);
+        // The state of a removed entry is not STARTED, such entry is never served.
+        final O result = entry != null ? entry.getStartedObject() : null;
+        if (notify && result != null) {
+            doEntryGot(entry);
+        }
+        return result;
+    }
+
+    /**
+     * Проверяет результат попытки захвата блокировки ключа.
+     *
+     * @param locked результат {@link Lock#tryLockRead(long, TimeUnit)} или {@link Lock#tryLockWrite(long, TimeUnit)}.
+     * @param key    ключ объекта
+     * @throws LockTimeoutException если блокировка не получена.
+     */
+    protected static void requireLocked(boolean locked, Object key) throws LockTimeoutException {
+        if (!locked) {
+            throw new LockTimeoutException(String.format("The lock of the key '%s' was not acquired within the timeout.", key));
+        }
+    }
+
     private ManagedAdapter<O> getDefaultAdapter() {
         return Objects.requireNonNull(defaultAdapter_, "The default managed adapter not set. It's must be passed in to manager constructor.");
     }
@@ -383,7 +962,25 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
      * @see ConcurrentHashMap#get(Object)
      */
     protected final Entry<O> internalGetEntryIfPresent(final K k) {
-        return entryMap_.get(k);
+        final FrozenEntryTable<K, O> frozen = frozen_;
+        return frozen != null && frozen.getModCount() == modCount_ ? frozen.get(k) : entryMap_.get(k);
+    }
+
+    /**
+     * Performs the action for each entry of the entry map. If the entry map is a {@link ConcurrentHashMap}, the
+     * entries are traversed in parallel by the {@link java.util.concurrent.ForkJoinPool} of the calling thread, or
+     * the common pool, once the map size reaches the threshold; otherwise on the calling thread.
+     *
+     * @param parallelismThreshold the estimated number of entries needed for this operation to be executed in parallel
+     * @param action               the action
+     * @see ConcurrentHashMap#forEach(long, BiConsumer)
+     */
+    protected final void internalForEachEntry(final long parallelismThreshold, final BiConsumer<? super K, ? super Entry<O>> action) {
+        if (entryMap_ instanceof ConcurrentHashMap) {
+            ((ConcurrentHashMap<K, Entry<O>>) entryMap_).forEach(parallelismThreshold, action);
+        } else {
+            entryMap_.forEach(action);
+        }
     }
 
     /**
@@ -394,7 +991,12 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
      * @see ConcurrentHashMap#put(Object, Object)
      */
     protected final void internalPutEntry(final K k, final Entry<O> entry) {
-        entryMap_.put(k, entry);
+        if (entryMap_.put(k, entry) != entry) {
+            structureModified();
+        } else {
+            // The entry is already mapped (see EntryLockHashManager), only its object is new.
+            MOD_COUNT.incrementAndGet(this);
+        }
     }
 
     /**
@@ -413,10 +1015,56 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
     }
 
     protected final Entry<O> internalRemoveEntry(final K k) {
-        return entryMap_.remove(k);
+        final Entry<O> entry = entryMap_.remove(k);
+        if (entry != null) {
+            structureModified();
+        }
+        return entry;
+    }
+
+    /**
+     * @param k     key with which the specified value is to be associated
+     * @param entry value to be associated with the specified key
+     * @return the previous value associated with the specified key, or
+     * {@code null} if there was no mapping for the key
+     * @see ConcurrentHashMap#putIfAbsent(Object, Object)
+     */
+    protected final Entry<O> internalPutEntryIfAbsent(final K k, final Entry<O> entry) {
+        final Entry<O> previous = entryMap_.putIfAbsent(k, entry);
+        if (previous == null) {
+            structureModified();
+        }
+        return previous;
     }
 
-    protected final O doReplace(K key, ObjectFactory<O> factory, ManagedAdapter<O> adapter) throws Exception {
+    /**
+     * @param k     key with which the specified value is associated
+     * @param entry value expected to be associated with the specified key
+     * @return {@code true} if the value was removed
+     * @see ConcurrentHashMap#remove(Object, Object)
+     */
+    protected final boolean internalRemoveEntry(final K k, final Entry<O> entry) {
+        final boolean removed = entryMap_.remove(k, entry);
+        if (removed) {
+            structureModified();
+        }
+        return removed;
+    }
+
+    /**
+     * Called after an entry is added to or removed from the entry map. Thaws the frozen manager.
+     * <p>
+     * The count is incremented after the map modification and before the thaw, so a snapshot built before the
+     * modification is not used anymore, even if {@link #freeze()} publishes it after the thaw.
+     */
+    private void structureModified() {
+        MOD_COUNT.incrementAndGet(this);
+        if (frozen_ != null) {
+            frozen_ = null;
+        }
+    }
+
+    protected O doReplace(K key, ObjectFactory<O> factory, ManagedAdapter<O> adapter) throws Exception {
         O result = null;
         final Lock entryLock = acquireLock(key);
         try {
@@ -428,7 +1076,9 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
                         doDeinitializeEntry(key, entry);
                     }
                 }
-                entry = Optional.ofNullable(entry).orElseGet(this::doCreateEntry);
+                if (entry == null) {
+                    entry = doCreateEntry();
+                }
                 doInitializeEntry(key, entry, factory, adapter);
                 result = entry.getObjectAndAdapter().object;
             } finally {
@@ -444,6 +1094,7 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
      * Creates an object, binds it to the entry, publishes the entry in the manager map,
      * starts the object, and notifies entry lifecycle callbacks.
      * If any step fails, performs rollback of the already completed initialization stages.
+     * A failure of a rollback stage is thrown instead of the original exception.
      *
      * @param key     entry key
      * @param entry   entry to initialize
@@ -453,44 +1104,103 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
      */
     protected final void doInitializeEntry(K key, Entry<O> entry, ObjectFactory<O> factory, ManagedAdapter<O> adapter) throws Exception {
         final O object = doObjectCreate(factory, adapter, key);
-        Try.runnable(() -> {
+        // The stages are nested by plain try/catch, the pipeline allocates nothing but the object pair of the entry.
+        try {
             entry.initObjectAndAdapter(object, adapter);
             // Помещаю Entry в карту до вызова #doObjectStart(), что бы текущий поток, при
             // рекурсивном вызове текущего метода, мог получить ссылку на этот Entry.
             internalPutEntry(key, entry);
-            Try.runnable(() -> {
+            try {
                 doObjectStart(object, adapter);
-                Try.runnable(() -> {
+                try {
                     doEntryAdded(entry);
-                }).onCatch((th) -> {
+                    entry.setState(Entry.State.STARTED);
+                } catch (Throwable th) {
                     doObjectStop(object, adapter);
                     throw th;
-                }).run();
-            }).onCatch((th) -> {
+                }
+            } catch (Throwable th) {
                 internalRemoveAndClearEntry(key);
                 throw th;
-            }).run();
-        }).onCatch((th) -> {
+            }
+        } catch (Throwable th) {
             doObjectDestroy(object, adapter);
             throw th;
-        }).run();
+        }
     }
 
     protected final void doDeinitializeEntry(K key, Entry<O> entry) throws Exception {
+        doDeinitializeEntry(key, entry, true);
+    }
+
+    /**
+     * Stops and destroys the object of the entry as {@link #doDeinitializeEntry(Object, Entry)} does, but leaves the
+     * entry mapped to the key without an object. The threads accessing the key meanwhile find the entry and wait for
+     * its lock, so the object can be replaced by {@link #doInitializeEntry(Object, Entry, ObjectFactory, ManagedAdapter)}
+     * of the same entry.
+     * <p>
+     * If {@link #onEntryRemoving(Entry)} fails, the entry keeps its object. If the stop or the destroy of the object
+     * fails, the entry stays mapped without an object, and the caller must remove it.
+     *
+     * @param key   key
+     * @param entry object entry
+     * @throws Exception failure of the stop or the destroy of the object
+     */
+    protected final void doDeinitializeEntryInPlace(K key, Entry<O> entry) throws Exception {
+        doDeinitializeEntry(key, entry, false);
+    }
+
+    private void doDeinitializeEntry(K key, Entry<O> entry, boolean unmap) throws Exception {
         final ObjectAndAdapter<O> objectAndAdapter = entry.getObjectAndAdapter();
-        doEntryRemoving(entry);
-        Try.runnable(() -> {
+        // Hits of other threads go to the lock of the key from now on.
+        final Entry.State state = entry.getState();
+        entry.setState(Entry.State.STOPPING);
+        try {
+            doEntryRemoving(entry);
+        } catch (Throwable th) {
+            // The remove is aborted, the entry stays as is.
+            entry.setState(state);
+            throw th;
+        }
+        Throwable failure = null;
+        try {
             doObjectStop(objectAndAdapter.object, objectAndAdapter.adapter);
-        }).doFinally(() -> {
-            ExceptionUtils.collectAndThrow(
-                    () -> internalRemoveAndClearEntry(key),
-                    () -> doObjectDestroy(objectAndAdapter.object, objectAndAdapter.adapter)
-            );
-        }).run();
+        } catch (Throwable th) {
+            failure = th;
+        }
+        // A failure of the cleanup is thrown instead of the failure of the stop.
+        Throwable cleanupFailure = null;
+        try {
+            if (unmap) {
+                internalRemoveAndClearEntry(key);
+            } else {
+                entry.clearObjectAndAdapter();
+                // The entry stays mapped, but its object is gone.
+                MOD_COUNT.incrementAndGet(this);
+            }
+        } catch (Throwable th) {
+            cleanupFailure = th;
+        }
+        try {
+            doObjectDestroy(objectAndAdapter.object, objectAndAdapter.adapter);
+        } catch (Throwable th) {
+            cleanupFailure = addSuppressed(cleanupFailure, th);
+        }
+        if (cleanupFailure != null) {
+            throw ExceptionUtils.asUnchecked(cleanupFailure);
+        }
+        if (failure != null) {
+            throw ExceptionUtils.asUnchecked(failure);
+        }
     }
 
     protected final <E extends Entry<O>> E doCreateEntry() {
-        return Objects.requireNonNull(newEntry(), String.format("The `%s#newEntry()` method did not return an instance.", getClass().getCanonicalName()));
+        final E entry = newEntry();
+        if (entry == null) {
+            // The message is formatted on failure only, the method is called on every entry creation.
+            throw new NullPointerException(String.format("The `%s#newEntry()` method did not return an instance.", getClass().getCanonicalName()));
+        }
+        return entry;
     }
 
     @SuppressWarnings("unchecked")
@@ -515,7 +1225,32 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
         return result;
     }
 
+    /**
+     * Removes the entry of the key, whichever object it holds. Called by the unconditional removals:
+     * {@link #remove(Object)}, {@link #removeAll()} and {@link #clear()}.
+     * <p>
+     * The method stays overridable for the descendants, which intercept these removals. The conditional removals
+     * ({@link #removeIf(BiPredicate)}, the rollback of {@link #computeAllIfAbsent(Collection, Function, Executor)}) do
+     * not pass through it, a descendant changing how an entry is removed overrides {@link #doRemove(Object, Object)},
+     * which all removals reach.
+     *
+     * @param key key
+     * @return the removed object or {@code null}.
+     * @throws Exception when stopping of the object is failed.
+     */
     protected O doRemove(K key) throws Exception {
+        return doRemove(key, null);
+    }
+
+    /**
+     * Removes the entry of the key under its write lock.
+     *
+     * @param key      key
+     * @param expected the object, which the key must be associated with, or {@code null} to remove any object.
+     * @return the removed object or {@code null}.
+     * @throws Exception when stopping of the object is failed.
+     */
+    protected O doRemove(K key, O expected) throws Exception {
         O result = null;
         Entry<O> entry = internalGetEntryIfPresent(key);
         if (entry != null) {
@@ -524,7 +1259,7 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
                 entryLock.lockWrite();
                 try {
                     entry = internalGetEntryIfPresent(key);
-                    if (entry != null) {
+                    if (entry != null && (expected == null || entry.getObject() == expected)) {
                         result = doRemoveEntry(key, entry);
                     }
                 } finally {
@@ -537,6 +1272,105 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
         return result;
     }
 
+    /**
+     * Creates the missing objects one by one on the calling thread, the executor is not used: the entry map of this
+     * manager is not required to be thread-safe. Thread-safe descendants create the objects in parallel,
+     * see {@link ConcurrentHashManager#doComputeAllIfAbsent(Collection, Function, ManagedAdapter, Executor, int)}.
+     * <p>
+     * The first failed key stops the batch, and the objects created before it are removed.
+     *
+     * @param keys        keys
+     * @param factory     the function to compute an object of a key.
+     * @param adapter     adapter of the created objects.
+     * @param executor    executor of the creation tasks.
+     * @param parallelism maximum count of the concurrently running creation tasks.
+     * @return new map of the keys to the objects.
+     * @throws ManagerException if creation of any object failed.
+     */
+    protected Map<K, O> doComputeAllIfAbsent(Collection<? extends K> keys, Function<K, O> factory, ManagedAdapter<O> adapter, Executor executor, int parallelism) {
+        final Map<K, O> result = new LinkedHashMap<>((int) (keys.size() / 0.75f) + 1);
+        final List<TrackingObjectFactory<K, O>> factories = new ArrayList<>();
+        for (K key : keys) {
+            Objects.requireNonNull(key, "The key value is required.");
+            if (!result.containsKey(key)) {
+                final TrackingObjectFactory<K, O> trackingFactory = new TrackingObjectFactory<>(key, factory);
+                factories.add(trackingFactory);
+                try {
+                    result.put(key, doComputeIfAbsent(key, trackingFactory, adapter));
+                } catch (Exception e) {
+                    final List<Throwable> exceptionList = new ArrayList<>();
+                    exceptionList.add(new ManagerException("Error while creating key = '" + key + "'", e));
+                    rollbackCreated(factories, exceptionList);
+                    ExceptionUtils.throwCollected(exceptionList);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes the objects created by the factories of a failed batch, if their keys are still associated with them.
+     *
+     * @param factories     the factories of the batch.
+     * @param exceptionList the list collecting the failures of the removal.
+     */
+    final void rollbackCreated(List<TrackingObjectFactory<K, O>> factories, List<Throwable> exceptionList) {
+        for (TrackingObjectFactory<K, O> trackingFactory : factories) {
+            final O created = trackingFactory.created;
+            if (created != null) {
+                try {
+                    doRemove(trackingFactory.getKey(), created);
+                } catch (Exception e) {
+                    exceptionList.add(new ManagerException("Error while removing key = '" + trackingFactory.getKey() + "'", e));
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<O> removeIf(BiPredicate<? super K, ? super O> filter) {
+        Objects.requireNonNull(filter, "The filter value is required.");
+        return doRemoveIf(filter, null, 1);
+    }
+
+    @Override
+    public List<O> removeIf(BiPredicate<? super K, ? super O> filter, Executor executor, int parallelism) {
+        Objects.requireNonNull(filter, "The filter value is required.");
+        Objects.requireNonNull(executor, "The executor value is required.");
+        return doRemoveIf(filter, executor, parallelism);
+    }
+
+    /**
+     * Evaluates the filter for the present objects without write locks, and removes each matching key on the calling
+     * thread by {@link #doRemove(Object, Object)}, if it is still associated with the matched object. The executor is
+     * not used: the entry map of this manager is not required to be thread-safe, see
+     * {@link ConcurrentHashManager#doRemoveIf(BiPredicate, Executor, int)}.
+     *
+     * @param filter      predicate of the key and the object.
+     * @param executor    executor of the remove tasks or {@code null}.
+     * @param parallelism maximum count of the concurrently running remove tasks.
+     * @return the removed objects.
+     */
+    protected List<O> doRemoveIf(BiPredicate<? super K, ? super O> filter, Executor executor, int parallelism) {
+        final List<Throwable> exceptionList = new ArrayList<>();
+        final List<O> list = new ArrayList<>();
+        for (K key : new ArrayList<>(keySet())) {
+            final O object = doGetIfPresent(key, false);
+            if (object != null && filter.test(key, object)) {
+                try {
+                    final O item = doRemove(key, object);
+                    if (item != null) {
+                        list.add(item);
+                    }
+                } catch (Exception e) {
+                    exceptionList.add(new ManagerException("Error while removing key = '" + key + "'", e));
+                }
+            }
+        }
+        ExceptionUtils.throwCollected(exceptionList);
+        return list;
+    }
+
     protected List<O> doRemoveAll() {
         final List<Throwable> exceptionList = new ArrayList<>();
         final List<O> list = new ArrayList<>();
@@ -585,7 +1419,8 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
     /**
      * This method is called after a reference to the managed object has been successfully obtained.
      * <p>
-     * At the time of invocation, a read lock is set for the record.
+     * At the time of invocation, a read lock is set for the record, unless the record was read in the
+     * {@link Entry.State#STARTED} state or under a validated optimistic stamp (see {@link #isOnEntryGotLockRequired()}).
      *
      * @param entry the record
      */
@@ -593,6 +1428,21 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
 
     }
 
+    /**
+     * Indicates whether {@link #onEntryGot(Entry)} must be called under the read lock of the record.
+     * <p>
+     * If {@code false} (default), the manager calls {@link #onEntryGot(Entry)} without taking the read lock for a
+     * {@link Entry.State#STARTED} record, and, with a lock source supporting optimistic reads
+     * (see {@link Lock#tryOptimisticRead()}), after a validated optimistic read.
+     * Descendants, whose {@link #onEntryGot(Entry)} changes the record state observed by write-locked operations,
+     * must return {@code true}.
+     *
+     * @return {@code true} if the read lock is required, else {@code false}.
+     */
+    protected boolean isOnEntryGotLockRequired() {
+        return false;
+    }
+
     /**
      * Вызывается после старта и добавления объекта в менеджер, но перед снятием блокировки.
      *
@@ -635,29 +1485,29 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
 
     protected final O doObjectCreate(ObjectFactory<O> factory, ManagedAdapter<O> adapter, K key) throws Exception {
         final O object = factory.createObject();
-        Try.runnable(() -> {
+        try {
             getHooks().onObjectCreated(key, object);
-        }).onCatch((th) -> {
+        } catch (Throwable th) {
             doObjectDestroy(object, adapter);
             throw th;
-        }).run();
+        }
         return object;
     }
 
     protected final void doObjectStart(O object, ManagedAdapter<O> adapter) throws Exception {
-        Try.runnable(() -> {
+        try {
             getHooks().onObjectStarting(object);
             adapter.startObject(object);
-            Try.runnable(() -> {
+            try {
                 getHooks().onObjectStarted(object);
-            }).onCatch((th) -> {
+            } catch (Throwable th) {
                 doObjectStop(object, adapter);
                 throw th;
-            }).run();
-        }).onCatch((th) -> {
+            }
+        } catch (Throwable th) {
             doObjectFailure(object, adapter, th);
             throw th;
-        }).run();
+        }
     }
 
     protected final void doObjectFailure(O object, ManagedAdapter<O> adapter, Throwable throwable) throws Exception {
@@ -665,28 +1515,57 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
     }
 
     protected final void doObjectStop(O object, ManagedAdapter<O> adapter) throws Exception {
-        Try.runnable(() -> {
-            ExceptionUtils.collectAndThrow(
-                    () -> getHooks().onObjectStopping(object),
-                    () -> {
-                        adapter.stopObject(object);
-                        getHooks().onObjectStopped(object);
-                    }
-            );
-        }).onCatch((th) -> {
-            doObjectFailure(object, adapter, th);
-            throw th;
-        }).run();
+        Throwable failure = null;
+        try {
+            getHooks().onObjectStopping(object);
+        } catch (Throwable th) {
+            failure = th;
+        }
+        try {
+            adapter.stopObject(object);
+            getHooks().onObjectStopped(object);
+        } catch (Throwable th) {
+            failure = addSuppressed(failure, th);
+        }
+        if (failure != null) {
+            doObjectFailure(object, adapter, failure);
+            throw ExceptionUtils.asUnchecked(failure);
+        }
     }
 
     protected final void doObjectDestroy(O object, ManagedAdapter<O> adapter) throws Exception {
-        ExceptionUtils.collectAndThrow(
-                () -> getHooks().onObjectDestroying(object),
-                () -> {
-                    adapter.destroyObject(object);
-                    getHooks().onObjectDestroyed(object);
-                }
-        );
+        Throwable failure = null;
+        try {
+            getHooks().onObjectDestroying(object);
+        } catch (Throwable th) {
+            failure = th;
+        }
+        try {
+            adapter.destroyObject(object);
+            getHooks().onObjectDestroyed(object);
+        } catch (Throwable th) {
+            failure = addSuppressed(failure, th);
+        }
+        if (failure != null) {
+            throw ExceptionUtils.asUnchecked(failure);
+        }
+    }
+
+    /**
+     * Adds the exception to the failure as suppressed.
+     *
+     * @param failure first failure or {@code null}
+     * @param th      next failure
+     * @return the first failure.
+     */
+    private static Throwable addSuppressed(Throwable failure, Throwable th) {
+        if (failure == null) {
+            return th;
+        }
+        if (failure != th) {
+            failure.addSuppressed(th);
+        }
+        return failure;
     }
 
     /**
@@ -713,6 +1592,10 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
          * Volatile variable for the atomic non blocking read write operations.
          */
         private volatile ObjectAndAdapter<O> objectAndAdapter_ = null;
+        /**
+         * Lifecycle state of the entry. Changed only under the write lock of the key, read without locks.
+         */
+        private volatile State state_ = State.NEW;
 
         public O getObject() {
             final ObjectAndAdapter<O> objectAndAdapter = objectAndAdapter_;
@@ -723,16 +1606,64 @@ public abstract class AbstractManager<K, O> implements Manager<K, O>, Serializab
             return objectAndAdapter_;
         }
 
+        public State getState() {
+            return state_;
+        }
+
+        /**
+         * Returns the object, if the entry is {@link State#STARTED}, without any lock.
+         * <p>
+         * The pair is re-read after the state: every initialization publishes a new {@link ObjectAndAdapter}, so an
+         * unchanged pair means that the state was read within the lifecycle of the returned object, not of a replacing one.
+         *
+         * @return started object or {@code null}, if the entry is being created, replaced or removed.
+         */
+        public O getStartedObject() {
+            final ObjectAndAdapter<O> objectAndAdapter = objectAndAdapter_;
+            if (objectAndAdapter != null && state_ == State.STARTED && objectAndAdapter_ == objectAndAdapter) {
+                return objectAndAdapter.object;
+            }
+            return null;
+        }
+
         private ObjectAndAdapter<O> initObjectAndAdapter(O object, ManagedAdapter<O> adapter) {
             final ObjectAndAdapter<O> objectAndAdapter = new ObjectAndAdapter<O>(object, adapter);
             objectAndAdapter_ = objectAndAdapter;
+            state_ = State.STARTING;
             return objectAndAdapter;
         }
 
+        private void setState(State state) {
+            state_ = state;
+        }
+
         private void clearObjectAndAdapter() {
+            state_ = State.NEW;
             objectAndAdapter_ = null;
         }
 
+        /**
+         * Lifecycle state of the entry.
+         */
+        public enum State {
+            /**
+             * The object is not set.
+             */
+            NEW,
+            /**
+             * The object is set and being started, the entry is not added yet.
+             */
+            STARTING,
+            /**
+             * The object is started and the entry is added. Hits do not require the lock of the key.
+             */
+            STARTED,
+            /**
+             * The entry is being removed, the object is being stopped.
+             */
+            STOPPING
+        }
+
     }
 
 }
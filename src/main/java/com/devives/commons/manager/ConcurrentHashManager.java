@@ -17,12 +17,18 @@
 package com.devives.commons.manager;
 
 import com.devives.commons.lang.ExceptionUtils;
-import com.devives.commons.manager.lock.AbstractLockSource;
 import com.devives.commons.manager.lock.RWLockSource;
 
 import java.io.Serializable;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static com.devives.commons.manager.Manager.noopHooks;
@@ -57,22 +63,89 @@ public class ConcurrentHashManager<K, O> extends AbstractManager<K, O> implement
         super(new ConcurrentHashMap<>(), new RWLockSource<K>(false), defaultAdapter, lifecycleHooks);
     }
 
-    public ConcurrentHashManager(AbstractLockSource<K> lockSource) {
+    public ConcurrentHashManager(LockSource<K> lockSource) {
         super(new ConcurrentHashMap<>(), lockSource, noopManagedAdapter(), noopHooks());
     }
 
-    public ConcurrentHashManager(AbstractLockSource<K> lockSource, Hooks<K, O> lifecycleHooks) {
+    public ConcurrentHashManager(LockSource<K> lockSource, Hooks<K, O> lifecycleHooks) {
         super(new ConcurrentHashMap<>(), lockSource, noopManagedAdapter(), lifecycleHooks);
     }
 
-    public ConcurrentHashManager(AbstractLockSource<K> lockSource, ManagedAdapter<O> defaultAdapter) {
+    public ConcurrentHashManager(LockSource<K> lockSource, ManagedAdapter<O> defaultAdapter) {
         super(new ConcurrentHashMap<>(), lockSource, defaultAdapter, noopHooks());
     }
 
-    protected ConcurrentHashManager(AbstractLockSource<K> lockSource, ManagedAdapter<O> defaultAdapter, Hooks<K, O> lifecycleHooks) {
+    protected ConcurrentHashManager(LockSource<K> lockSource, ManagedAdapter<O> defaultAdapter, Hooks<K, O> lifecycleHooks) {
         super(new ConcurrentHashMap<>(), lockSource, defaultAdapter, lifecycleHooks);
     }
 
+    /**
+     * Serves the present keys on the calling thread, then creates the missing objects by tasks of the executor and
+     * waits for all of them.
+     * <p>
+     * A task takes the lock of its single key on the executor thread by
+     * {@link #doComputeIfAbsent(Object, ObjectFactory, ManagedAdapter)}, so the recursive access to the manager from
+     * {@link ManagedAdapter#startObject(Object)} works as for a single key. No thread holds locks of several keys,
+     * so batches over the same keys can not deadlock each other.
+     * <p>
+     * After a failure the tasks skip the keys not computed yet, and the objects created by the batch are removed.
+     */
+    @Override
+    protected Map<K, O> doComputeAllIfAbsent(Collection<? extends K> keys, Function<K, O> factory, ManagedAdapter<O> adapter, Executor executor, int parallelism) {
+        final Map<K, O> result = new LinkedHashMap<>((int) (keys.size() / 0.75f) + 1);
+        final List<K> missingKeys = new ArrayList<>();
+        for (K key : keys) {
+            Objects.requireNonNull(key, "The key value is required.");
+            if (!result.containsKey(key)) {
+                final O object = doGetIfPresent(key, true);
+                // The missing key is mapped to null to keep the iteration order of the keys.
+                result.put(key, object);
+                if (object == null) {
+                    missingKeys.add(key);
+                }
+            }
+        }
+        if (missingKeys.isEmpty()) {
+            return result;
+        }
+        final List<TrackingObjectFactory<K, O>> factories = new ArrayList<>(missingKeys.size());
+        for (K key : missingKeys) {
+            factories.add(new TrackingObjectFactory<>(key, factory));
+        }
+        final Object[] objects = new Object[missingKeys.size()];
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        final Throwable[] failures = ParallelTasks.run(missingKeys.size(), parallelism, executor, index -> {
+            if (failed.get()) {
+                // The batch is rolled back, the remaining keys are skipped.
+                return;
+            }
+            boolean computed = false;
+            try {
+                objects[index] = doComputeIfAbsent(missingKeys.get(index), factories.get(index), adapter);
+                computed = true;
+            } finally {
+                if (!computed) {
+                    failed.set(true);
+                }
+            }
+        });
+        if (failures != null) {
+            final List<Throwable> exceptionList = new ArrayList<>();
+            for (int i = 0; i < failures.length; i++) {
+                if (failures[i] != null) {
+                    exceptionList.add(new ManagerException("Error while creating key = '" + missingKeys.get(i) + "'", failures[i]));
+                }
+            }
+            rollbackCreated(factories, exceptionList);
+            ExceptionUtils.throwCollected(exceptionList);
+        }
+        for (int i = 0; i < objects.length; i++) {
+            @SuppressWarnings("unchecked") final O object = (O) objects[i];
+            result.put(missingKeys.get(i), object);
+        }
+        return result;
+    }
+
     protected final List<O> doRemoveAll() {
         final List<Throwable> exceptionList = new ArrayList<>();
         final List<O> list = new ArrayList<>();
@@ -104,6 +177,140 @@ public class ConcurrentHashManager<K, O> extends AbstractManager<K, O> implement
         ExceptionUtils.throwCollected(exceptionList);
     }
 
+    /**
+     * Removes all objects, stopping and destroying them by tasks of the executor.
+     * <p>
+     * Each key is removed as by {@link #remove(Object)}, under its write lock. The shutdown of a manager with many
+     * objects, whose stop is slow, takes about the sum of the stop times divided by the parallelism.
+     *
+     * @param executor    executor of the remove tasks.
+     * @param parallelism maximum count of the concurrently running remove tasks.
+     * @return the removed objects.
+     * @throws ManagerException collected failures of the removed keys, after all keys are processed.
+     * @see #removeAll()
+     */
+    public List<O> removeAll(Executor executor, int parallelism) {
+        Objects.requireNonNull(executor, "The executor value is required.");
+        return doRemoveAll(executor, parallelism);
+    }
+
+    /**
+     * Removes all objects, stopping and destroying them by tasks of the executor.
+     *
+     * @param executor    executor of the remove tasks.
+     * @param parallelism maximum count of the concurrently running remove tasks.
+     * @throws ManagerException collected failures of the removed keys, after all keys are processed.
+     * @see #removeAll(Executor, int)
+     * @see #clear()
+     */
+    public void clear(Executor executor, int parallelism) {
+        Objects.requireNonNull(executor, "The executor value is required.");
+        doRemoveAll(executor, parallelism);
+    }
+
+    protected final List<O> doRemoveAll(Executor executor, int parallelism) {
+        final List<K> keys = new ArrayList<>(keySet());
+        final Object[] objects = new Object[keys.size()];
+        final Throwable[] failures = ParallelTasks.run(keys.size(), parallelism, executor, index -> {
+            // The write lock will set in doRemove().
+            objects[index] = doRemove(keys.get(index));
+        });
+        return collectRemoved(keys, objects, failures);
+    }
+
+    /**
+     * Performs the action for each present object, traversing the backing map in parallel by the common
+     * {@link ForkJoinPool} once the count of the keys reaches the threshold.
+     * <p>
+     * A started object is passed to the action without taking the lock of its key. An object being created or removed
+     * is awaited under the read lock of its key, as in {@link #forEach(BiConsumer)}. The traversal is weakly
+     * consistent, the action is called concurrently and must be thread-safe.
+     *
+     * @param parallelismThreshold the estimated number of keys needed for this operation to be executed in parallel;
+     *                             {@link Long#MAX_VALUE} runs it on the calling thread, {@code 1} gives the maximal
+     *                             parallelism.
+     * @param action               the action
+     * @see ConcurrentHashMap#forEach(long, BiConsumer)
+     */
+    public void forEach(long parallelismThreshold, BiConsumer<? super K, ? super O> action) {
+        Objects.requireNonNull(action);
+        internalForEachEntry(parallelismThreshold, (key, entry) -> doForEachEntry(key, entry, action));
+    }
+
+    /**
+     * Performs the action for each present object, traversing the backing map in parallel by the given pool once the
+     * count of the keys reaches the threshold. The calling thread waits for the traversal to complete.
+     *
+     * @param parallelismThreshold the estimated number of keys needed for this operation to be executed in parallel
+     * @param action               the action
+     * @param pool                 the pool of the traversal tasks
+     * @see #forEach(long, BiConsumer)
+     */
+    public void forEach(long parallelismThreshold, BiConsumer<? super K, ? super O> action, ForkJoinPool pool) {
+        Objects.requireNonNull(action);
+        Objects.requireNonNull(pool, "The pool value is required.");
+        if (ForkJoinTask.getPool() == pool) {
+            // The tasks of ConcurrentHashMap.forEach are forked into the pool of the current worker.
+            forEach(parallelismThreshold, action);
+        } else {
+            pool.submit(() -> forEach(parallelismThreshold, action)).join();
+        }
+    }
+
+    private void doForEachEntry(K key, Entry<O> entry, BiConsumer<? super K, ? super O> action) {
+        O object = entry.getStartedObject();
+        if (object == null) {
+            object = doGetIfPresent(key, false);
+        }
+        if (object != null) {
+            action.accept(key, object);
+        }
+    }
+
+    /**
+     * Evaluates the filter for the present objects on the calling thread without write locks, then removes the
+     * matching keys by tasks of the executor. A key is removed only if it is still associated with the matched object.
+     */
+    @Override
+    protected List<O> doRemoveIf(BiPredicate<? super K, ? super O> filter, Executor executor, int parallelism) {
+        if (executor == null) {
+            return super.doRemoveIf(filter, null, parallelism);
+        }
+        final List<K> keys = new ArrayList<>();
+        final List<O> matched = new ArrayList<>();
+        for (K key : keySet()) {
+            final O object = doGetIfPresent(key, false);
+            if (object != null && filter.test(key, object)) {
+                keys.add(key);
+                matched.add(object);
+            }
+        }
+        if (keys.isEmpty()) {
+            return new ArrayList<>();
+        }
+        final Object[] objects = new Object[keys.size()];
+        final Throwable[] failures = ParallelTasks.run(keys.size(), parallelism, executor, index -> {
+            // The write lock will set in doRemove().
+            objects[index] = doRemove(keys.get(index), matched.get(index));
+        });
+        return collectRemoved(keys, objects, failures);
+    }
+
+    private List<O> collectRemoved(List<K> keys, Object[] objects, Throwable[] failures) {
+        final List<Throwable> exceptionList = new ArrayList<>();
+        final List<O> list = new ArrayList<>(objects.length);
+        for (int i = 0; i < objects.length; i++) {
+            if (failures != null && failures[i] != null) {
+                exceptionList.add(new ManagerException("Error while removing key = '" + keys.get(i) + "'", failures[i]));
+            } else if (objects[i] != null) {
+                @SuppressWarnings("unchecked") final O item = (O) objects[i];
+                list.add(item);
+            }
+        }
+        ExceptionUtils.throwCollected(exceptionList);
+        return list;
+    }
+
     @Override
     protected Collection<O> createValuesCollection(Supplier<Collection<Entry<O>>> valuesSupplier) {
         return new ValuesCollection<>(valuesSupplier);
@@ -0,0 +1,342 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static com.devives.commons.manager.Manager.*;
+
+/**
+ * Thread-safe concurrent implementation of {@link Manager}, which keeps the lock of a key inside the entry of the key.
+ * <p>
+ * {@link ConcurrentHashManager} looks up a lock in the {@link LockSource} on every operation, in addition to the entry
+ * lookup. Here a hit costs a single lookup of the entry map, plus the read lock of the entry, if the entry is not
+ * {@link Entry.State#STARTED}.
+ * <p>
+ * The lock lifetime is bound to the entry lifetime by the placeholder protocol:
+ * <ul>
+ *     <li>a thread which does not find an entry publishes an empty placeholder entry with
+ *     {@link java.util.concurrent.ConcurrentHashMap#putIfAbsent(Object, Object)} and locks it;</li>
+ *     <li>after the lock is taken, the thread checks that the entry is still mapped to the key. An entry removed
+ *     while the thread was waiting for its lock is dead, and the thread retries with the actual entry;</li>
+ *     <li>a placeholder, whose object failed to be created, is removed from the map.</li>
+ * </ul>
+ * The placeholders are visible in {@link #keySet()} and {@link #size()} while objects are being created.
+ * The {@link LockSource} hooks {@link #acquireLock(Object)} and {@link #releaseLock(Object)} are no-op in this manager.
+ *
+ * @param <K> type of key
+ * @param <O> type of managed object
+ */
+public class EntryLockHashManager<K, O> extends ConcurrentHashManager<K, O> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean fair_;
+
+    public EntryLockHashManager() {
+        this(false, noopManagedAdapter(), noopHooks());
+    }
+
+    /**
+     * @param fair the fairness policy of the entry locks, see {@link com.devives.commons.manager.lock.RWLockSource#RWLockSource(boolean)}.
+     */
+    public EntryLockHashManager(boolean fair) {
+        this(fair, noopManagedAdapter(), noopHooks());
+    }
+
+    public EntryLockHashManager(Hooks<K, O> lifecycleHooks) {
+        this(false, noopManagedAdapter(), lifecycleHooks);
+    }
+
+    public EntryLockHashManager(ManagedAdapter<O> defaultAdapter) {
+        this(false, defaultAdapter, noopHooks());
+    }
+
+    public EntryLockHashManager(ManagedAdapter<O> defaultAdapter, Hooks<K, O> lifecycleHooks) {
+        this(false, defaultAdapter, lifecycleHooks);
+    }
+
+    public EntryLockHashManager(boolean fair, ManagedAdapter<O> defaultAdapter, Hooks<K, O> lifecycleHooks) {
+        super(noopLockSource(), defaultAdapter, lifecycleHooks);
+        fair_ = fair;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected final <E extends Entry<O>> E newEntry() {
+        return (E) new LockEntry<O>(fair_);
+    }
+
+    @Override
+    protected O doGet(K key) {
+        return doGetIfPresent(key, true);
+    }
+
+    @Override
+    protected O doGetIfPresent(K key, boolean notify) {
+        final O cached = doGetNearCached(key, notify);
+        if (cached != null) {
+            return cached;
+        }
+        final Entry<O> entry = internalGetEntryIfPresent(key);
+        return entry != null ? readObject(key, entry, notify) : null;
+    }
+
+    @Override
+    protected O doComputeIfAbsent(K key, ObjectFactory<O> factory, ManagedAdapter<O> adapter) throws Exception {
+        final O cached = doGetNearCached(key, true);
+        if (cached != null) {
+            return cached;
+        }
+        for (; ; ) {
+            Entry<O> entry = internalGetEntryIfPresent(key);
+            if (entry != null) {
+                final O result = readObject(key, entry, true);
+                if (result != null) {
+                    return result;
+                }
+            } else {
+                entry = putPlaceholder(key);
+            }
+            final ReentrantReadWriteLock.WriteLock writeLock = lockOf(entry).writeLock();
+            writeLock.lock();
+            try {
+                if (internalGetEntryIfPresent(key) != entry) {
+                    // The entry was removed while waiting for the lock. Retry with the actual one.
+                    continue;
+                }
+                if (entry.getObjectAndAdapter() == null) {
+                    initializePlaceholder(key, entry, factory, adapter);
+                } else {
+                    doEntryGot(entry);
+                }
+                return entry.getObject();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    protected O doGet(K key, long timeoutNanos) throws Exception {
+        final O cached = doGetNearCached(key, true);
+        if (cached != null) {
+            return cached;
+        }
+        final Entry<O> entry = internalGetEntryIfPresent(key);
+        return entry != null ? readObject(key, entry, timeoutNanos) : null;
+    }
+
+    @Override
+    protected O doComputeIfAbsent(K key, ObjectFactory<O> factory, ManagedAdapter<O> adapter, long timeoutNanos) throws Exception {
+        final O cached = doGetNearCached(key, true);
+        if (cached != null) {
+            return cached;
+        }
+        final long deadline = System.nanoTime() + timeoutNanos;
+        for (; ; ) {
+            Entry<O> entry = internalGetEntryIfPresent(key);
+            boolean published = false;
+            if (entry != null) {
+                final O result = readObject(key, entry, deadline - System.nanoTime());
+                if (result != null) {
+                    return result;
+                }
+            } else {
+                final Entry<O> placeholder = doCreateEntry();
+                entry = internalPutEntryIfAbsent(key, placeholder);
+                if (entry == null) {
+                    entry = placeholder;
+                    published = true;
+                }
+            }
+            final ReentrantReadWriteLock.WriteLock writeLock = lockOf(entry).writeLock();
+            boolean locked = false;
+            try {
+                locked = writeLock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } finally {
+                if (!locked && published) {
+                    // The timed out or interrupted caller does not leave its empty placeholder in the map.
+                    removeAbandonedPlaceholder(key, entry);
+                }
+            }
+            requireLocked(locked, key);
+            try {
+                if (internalGetEntryIfPresent(key) != entry) {
+                    continue;
+                }
+                if (entry.getObjectAndAdapter() == null) {
+                    initializePlaceholder(key, entry, factory, adapter);
+                } else {
+                    doEntryGot(entry);
+                }
+                return entry.getObject();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    protected O doReplace(K key, ObjectFactory<O> factory, ManagedAdapter<O> adapter) throws Exception {
+        for (; ; ) {
+            Entry<O> entry = internalGetEntryIfPresent(key);
+            if (entry == null) {
+                entry = putPlaceholder(key);
+            }
+            final ReentrantReadWriteLock.WriteLock writeLock = lockOf(entry).writeLock();
+            writeLock.lock();
+            try {
+                if (internalGetEntryIfPresent(key) != entry) {
+                    continue;
+                }
+                if (entry.getObjectAndAdapter() != null) {
+                    // The entry stays mapped while the object is replaced, the threads accessing the key wait for
+                    // its lock instead of publishing another placeholder.
+                    try {
+                        doDeinitializeEntryInPlace(key, entry);
+                    } catch (Throwable th) {
+                        if (entry.getObjectAndAdapter() == null) {
+                            // The old object is gone, the entry without an object must not stay in the map.
+                            internalRemoveEntry(key, entry);
+                        }
+                        throw th;
+                    }
+                }
+                initializePlaceholder(key, entry, factory, adapter);
+                return entry.getObject();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    protected O doRemove(K key, O expected) throws Exception {
+        for (; ; ) {
+            final Entry<O> entry = internalGetEntryIfPresent(key);
+            if (entry == null) {
+                return null;
+            }
+            final ReentrantReadWriteLock.WriteLock writeLock = lockOf(entry).writeLock();
+            writeLock.lock();
+            try {
+                if (internalGetEntryIfPresent(key) != entry) {
+                    continue;
+                }
+                if (expected != null && entry.getObject() != expected) {
+                    return null;
+                }
+                return doRemoveEntry(key, entry);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private O readObject(K key, Entry<O> entry, boolean notify) {
+        final O started = doGetStarted(key, entry, notify);
+        if (started != null) {
+            return started;
+        }
+        final ReentrantReadWriteLock.ReadLock readLock = lockOf(entry).readLock();
+        readLock.lock();
+        try {
+            // The object of a placeholder or of a removed entry is not set.
+            final O result = entry.getObject();
+            if (notify && result != null) {
+                doEntryGot(entry);
+            }
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private O readObject(K key, Entry<O> entry, long timeoutNanos) throws LockTimeoutException, InterruptedException {
+        final O started = doGetStarted(key, entry, true);
+        if (started != null) {
+            return started;
+        }
+        final ReentrantReadWriteLock.ReadLock readLock = lockOf(entry).readLock();
+        requireLocked(readLock.tryLock(timeoutNanos, TimeUnit.NANOSECONDS), key);
+        try {
+            final O result = entry.getObject();
+            if (result != null) {
+                doEntryGot(entry);
+            }
+            return result;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private Entry<O> putPlaceholder(K key) {
+        final Entry<O> placeholder = doCreateEntry();
+        final Entry<O> entry = internalPutEntryIfAbsent(key, placeholder);
+        return entry != null ? entry : placeholder;
+    }
+
+    /**
+     * Removes the placeholder, which its publisher has failed to lock. A thread holding the lock of the placeholder
+     * initializes it or removes it on failure itself, so the placeholder is removed only if it is not locked.
+     */
+    private void removeAbandonedPlaceholder(K key, Entry<O> entry) {
+        final ReentrantReadWriteLock.WriteLock writeLock = lockOf(entry).writeLock();
+        if (writeLock.tryLock()) {
+            try {
+                if (entry.getObjectAndAdapter() == null) {
+                    internalRemoveEntry(key, entry);
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private void initializePlaceholder(K key, Entry<O> entry, ObjectFactory<O> factory, ManagedAdapter<O> adapter) throws Exception {
+        try {
+            doInitializeEntry(key, entry, factory, adapter);
+        } catch (Throwable th) {
+            // The object was not created, the placeholder must not stay in the map.
+            internalRemoveEntry(key, entry);
+            throw th;
+        }
+    }
+
+    private static <O> ReentrantReadWriteLock lockOf(Entry<O> entry) {
+        return ((LockEntry<O>) entry).readWriteLock_;
+    }
+
+    /**
+     * Entry holding the read-write lock of its key.
+     *
+     * @param <O> type of managed object
+     */
+    protected static class LockEntry<O> extends Entry<O> {
+        private static final long serialVersionUID = 1L;
+
+        private final ReentrantReadWriteLock readWriteLock_;
+
+        protected LockEntry(boolean fair) {
+            readWriteLock_ = new ReentrantReadWriteLock(fair);
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager;
+
+import com.devives.commons.manager.AbstractManager.Entry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable open-addressing snapshot of the entry map of a frozen {@link AbstractManager}.
+ * <p>
+ * The capacity is the least power of two, which keeps the load factor at most 0.5. A lookup is a linear probe of
+ * the key array without locks and without allocations.
+ *
+ * @param <K> type of key
+ * @param <O> type of managed object
+ * @see AbstractManager#freeze()
+ */
+final class FrozenEntryTable<K, O> {
+
+    private final long modCount_;
+    private final Object[] keys_;
+    private final Entry<O>[] entries_;
+    private final int mask_;
+
+    /**
+     * @param modCount the modification count of the manager read before the snapshot is built.
+     * @param entryMap the entry map. The map may change concurrently, so the capacity is computed from a copy of
+     *                 its mappings, not from {@link Map#size()}: the map may grow while it is iterated, and a full table
+     *                 would make the probes endless.
+     */
+    @SuppressWarnings("unchecked")
+    FrozenEntryTable(long modCount, Map<K, Entry<O>> entryMap) {
+        modCount_ = modCount;
+        final List<Map.Entry<K, Entry<O>>> mapEntries = new ArrayList<>(entryMap.size());
+        mapEntries.addAll(entryMap.entrySet());
+        final int capacity = Integer.highestOneBit(Math.max(1, mapEntries.size() * 2 - 1)) << 1;
+        keys_ = new Object[capacity];
+        entries_ = new Entry[capacity];
+        mask_ = capacity - 1;
+        for (Map.Entry<K, Entry<O>> mapEntry : mapEntries) {
+            final K key = mapEntry.getKey();
+            int index = spread(key.hashCode()) & mask_;
+            while (keys_[index] != null && !keys_[index].equals(key)) {
+                index = (index + 1) & mask_;
+            }
+            keys_[index] = key;
+            entries_[index] = mapEntry.getValue();
+        }
+    }
+
+    /**
+     * @return the modification count of the manager, at which the snapshot is current.
+     */
+    long getModCount() {
+        return modCount_;
+    }
+
+    Entry<O> get(Object key) {
+        int index = spread(key.hashCode()) & mask_;
+        for (; ; ) {
+            final Object k = keys_[index];
+            if (k == null) {
+                return null;
+            }
+            if (k == key || k.equals(key)) {
+                return entries_[index];
+            }
+            index = (index + 1) & mask_;
+        }
+    }
+
+    static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+}
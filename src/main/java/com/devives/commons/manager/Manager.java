@@ -16,13 +16,22 @@
  */
 package com.devives.commons.manager;
 
+import com.devives.commons.lang.ExceptionUtils;
 import com.devives.commons.manager.lock.NoopLockSource;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
 import java.util.function.Function;
 
 /**
@@ -51,6 +60,32 @@ public interface Manager<K, O> {
      */
     O get(K key) throws ManagerException;
 
+    /**
+     * Return instance of the class {@code O} corresponding to the key, waiting for the read lock of the key at most
+     * the given time.
+     * <p>
+     * Allows to shed load, when another thread holds the key for a long time, e.g. in a slow
+     * {@link ManagedAdapter#startObject(Object)}.
+     * <p>
+     * The default implementation checks the interrupt status of the current thread and waits for the lock
+     * as {@link #get(Object)}, without the timeout.
+     *
+     * @param key     key
+     * @param timeout the maximum time to wait for the lock
+     * @param unit    the time unit of the {@code timeout} argument
+     * @return instance of {@code O}
+     * @throws ManagerException     if {@code key} is not present in manager.
+     * @throws LockTimeoutException if the lock was not acquired within the timeout.
+     * @throws InterruptedException if the current thread is interrupted while waiting for the lock.
+     */
+    default O get(K key, long timeout, TimeUnit unit) throws ManagerException, InterruptedException {
+        Objects.requireNonNull(unit);
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        return get(key);
+    }
+
     /**
      * Return instance of the class {@code O} corresponding to the key if it presents in manager.
      *
@@ -59,6 +94,50 @@ public interface Manager<K, O> {
      */
     O getIfPresent(K key);
 
+    /**
+     * Return instances of the class {@code O} corresponding to the keys.
+     * <p>
+     * The keys are looked up in a single pass, duplicate keys are looked up once. A key is looked up as by
+     * {@link #getIfPresent(Object)}, and the keys not present are reported together, each once, by the exception.
+     * <p>
+     * The default implementation calls {@link #get(Object)} for each distinct key and fails on the first
+     * missing key.
+     *
+     * @param keys keys
+     * @return new map of the keys to the instances of {@code O}, in the iteration order of the keys.
+     * @throws ManagerException if any of the keys is not present in manager.
+     */
+    default Map<K, O> getAll(Collection<? extends K> keys) throws ManagerException {
+        final Map<K, O> result = new LinkedHashMap<>();
+        for (K key : keys) {
+            if (!result.containsKey(key)) {
+                result.put(key, get(key));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Return instances of the class {@code O} corresponding to the keys present in manager.
+     * <p>
+     * The keys are looked up in a single pass, as by {@link #getIfPresent(Object)}, duplicate keys are looked up once.
+     * <p>
+     * The default implementation calls {@link #getIfPresent(Object)} for each key.
+     *
+     * @param keys keys
+     * @return new map of the present keys to the instances of {@code O}, in the iteration order of the keys.
+     */
+    default Map<K, O> getAllPresent(Collection<? extends K> keys) {
+        final Map<K, O> result = new LinkedHashMap<>();
+        for (K key : keys) {
+            final O object = getIfPresent(key);
+            if (object != null) {
+                result.put(key, object);
+            }
+        }
+        return result;
+    }
+
     /**
      * If the specified key is not already associated with a value,
      * attempts to compute its value using the given mapping function
@@ -108,6 +187,59 @@ public interface Manager<K, O> {
      */
     O computeIfAbsent(K key, ObjectFactory<O> factory, ManagedAdapter<O> adapter);
 
+    /**
+     * If the specified key is not already associated with a value,
+     * attempts to compute its value using the given mapping function
+     * and enters it into this manager, waiting for the lock of the key at most the given time.
+     * <p>
+     * The default implementation checks the interrupt status of the current thread and waits for the lock
+     * as {@link #computeIfAbsent(Object, Function)}, without the timeout.
+     *
+     * @param key     key
+     * @param factory the supplier to compute an objects factory.
+     * @param timeout the maximum time to wait for the lock
+     * @param unit    the time unit of the {@code timeout} argument
+     * @return instance of {@code O}
+     * @throws LockTimeoutException if the lock was not acquired within the timeout.
+     * @throws InterruptedException if the current thread is interrupted while waiting for the lock.
+     * @see #computeIfAbsent(Object, Function)
+     */
+    default O computeIfAbsent(K key, Function<K, O> factory, long timeout, TimeUnit unit) throws LockTimeoutException, InterruptedException {
+        Objects.requireNonNull(unit);
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        return computeIfAbsent(key, factory);
+    }
+
+    /**
+     * If the specified key is not already associated with a value,
+     * attempts to compute its value using the given mapping function
+     * and enters it into this manager, waiting for the lock of the key at most the given time.
+     * <p>
+     * The timeout limits the wait for the lock only, not the creation and start of the object.
+     * <p>
+     * The default implementation checks the interrupt status of the current thread and waits for the lock
+     * as {@link #computeIfAbsent(Object, ObjectFactory, ManagedAdapter)}, without the timeout.
+     *
+     * @param key     key
+     * @param factory the supplier to compute an objects factory.
+     * @param adapter adapter of {@code <O>} lifecycle to the managed object lifecycle.
+     * @param timeout the maximum time to wait for the lock
+     * @param unit    the time unit of the {@code timeout} argument
+     * @return instance of {@code O}
+     * @throws LockTimeoutException if the lock was not acquired within the timeout.
+     * @throws InterruptedException if the current thread is interrupted while waiting for the lock.
+     * @see #computeIfAbsent(Object, ObjectFactory, ManagedAdapter)
+     */
+    default O computeIfAbsent(K key, ObjectFactory<O> factory, ManagedAdapter<O> adapter, long timeout, TimeUnit unit) throws LockTimeoutException, InterruptedException {
+        Objects.requireNonNull(unit);
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        return computeIfAbsent(key, factory, adapter);
+    }
+
     /**
      * If the specified key is not already associated with a value,
      * attempts to compute its value using the given mapping function
@@ -120,6 +252,76 @@ public interface Manager<K, O> {
      */
     O computeIfAbsent(K key, ManagedFactory<O> managedFactory);
 
+    /**
+     * For each of the keys not already associated with a value, attempts to compute its value using the given
+     * mapping function and enters it into this manager. The missing objects are created and started in parallel by
+     * tasks of the executor, each task computes one key as {@link #computeIfAbsent(Object, Function)} does. At most
+     * as many tasks run at once as the parallelism of the executor, if it is a {@link java.util.concurrent.ForkJoinPool},
+     * else as the parallelism of the common pool.
+     * <p>
+     * If any key fails, the keys not computed yet are skipped, and the objects created by this call are removed
+     * again, if their keys are still associated with them. The objects present before the call stay in the manager.
+     * The failures are collected and thrown after all tasks have completed.
+     * <p>
+     * The default implementation computes the keys one by one on the calling thread by
+     * {@link #computeIfAbsent(Object, Function)}, the executor is not used.
+     *
+     * @param keys     keys
+     * @param factory  the function to compute an object of a key.
+     * @param executor executor of the creation tasks.
+     * @return new map of the keys to the instances of {@code O}, in the iteration order of the keys.
+     * @throws ManagerException if creation of any object failed.
+     * @see #computeAllIfAbsent(Collection, Function, Executor, int)
+     */
+    default Map<K, O> computeAllIfAbsent(Collection<? extends K> keys, Function<K, O> factory, Executor executor) {
+        Objects.requireNonNull(factory);
+        Objects.requireNonNull(executor);
+        final Map<K, O> result = new LinkedHashMap<>();
+        final Map<K, O> created = new LinkedHashMap<>();
+        for (K key : keys) {
+            if (!result.containsKey(key)) {
+                try {
+                    result.put(key, computeIfAbsent(key, k -> {
+                        final O object = factory.apply(k);
+                        created.put(k, object);
+                        return object;
+                    }));
+                } catch (Throwable e) {
+                    final List<Throwable> exceptionList = new ArrayList<>();
+                    exceptionList.add(new ManagerException("Error while creating key = '" + key + "'", e));
+                    for (Map.Entry<K, O> entry : created.entrySet()) {
+                        if (getIfPresent(entry.getKey()) == entry.getValue()) {
+                            try {
+                                remove(entry.getKey());
+                            } catch (Throwable re) {
+                                exceptionList.add(new ManagerException("Error while removing key = '" + entry.getKey() + "'", re));
+                            }
+                        }
+                    }
+                    ExceptionUtils.throwCollected(exceptionList);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the missing objects of the keys like {@link #computeAllIfAbsent(Collection, Function, Executor)},
+     * running at most the given count of the creation tasks at once.
+     * <p>
+     * The default implementation calls {@link #computeAllIfAbsent(Collection, Function, Executor)}.
+     *
+     * @param keys        keys
+     * @param factory     the function to compute an object of a key.
+     * @param executor    executor of the creation tasks.
+     * @param parallelism maximum count of the concurrently running creation tasks.
+     * @return new map of the keys to the instances of {@code O}, in the iteration order of the keys.
+     * @throws ManagerException if creation of any object failed.
+     */
+    default Map<K, O> computeAllIfAbsent(Collection<? extends K> keys, Function<K, O> factory, Executor executor, int parallelism) {
+        return computeAllIfAbsent(keys, factory, executor);
+    }
+
     /**
      * Put new instance of {@code O} in to manager.
      *
@@ -172,6 +374,59 @@ public interface Manager<K, O> {
      */
     List<O> removeAll();
 
+    /**
+     * Removes the instances, for which the filter returns {@code true}.
+     * <p>
+     * The filter is evaluated without write locks. The write lock is taken only for a matching key, and the key is
+     * removed only if it is still associated with the matched instance.
+     * <p>
+     * The default implementation tests the objects got by {@link #getIfPresent(Object)} and removes the
+     * matching keys by {@link #remove(Object)}. The removal is not conditional: an object put by another thread between
+     * the test and the removal is removed too.
+     *
+     * @param filter predicate of the key and the instance.
+     * @return a list containing the removed instances.
+     * @throws ManagerException collected failures of the removed keys, after all matching keys are processed.
+     */
+    default List<O> removeIf(BiPredicate<? super K, ? super O> filter) {
+        Objects.requireNonNull(filter);
+        final List<Throwable> exceptionList = new ArrayList<>();
+        final List<O> list = new ArrayList<>();
+        for (K key : new ArrayList<>(keySet())) {
+            final O object = getIfPresent(key);
+            if (object != null && filter.test(key, object)) {
+                try {
+                    final O removed = remove(key);
+                    if (removed != null) {
+                        list.add(removed);
+                    }
+                } catch (Throwable e) {
+                    exceptionList.add(new ManagerException("Error while removing key = '" + key + "'", e));
+                }
+            }
+        }
+        ExceptionUtils.throwCollected(exceptionList);
+        return list;
+    }
+
+    /**
+     * Removes the instances, for which the filter returns {@code true}, stopping them by tasks of the executor.
+     * <p>
+     * The default implementation removes the instances on the calling thread by
+     * {@link #removeIf(BiPredicate)}, the executor is not used.
+     *
+     * @param filter      predicate of the key and the instance.
+     * @param executor    executor of the remove tasks.
+     * @param parallelism maximum count of the concurrently running remove tasks.
+     * @return a list containing the removed instances.
+     * @throws ManagerException collected failures of the removed keys, after all matching keys are processed.
+     * @see #removeIf(BiPredicate)
+     */
+    default List<O> removeIf(BiPredicate<? super K, ? super O> filter, Executor executor, int parallelism) {
+        Objects.requireNonNull(executor);
+        return removeIf(filter);
+    }
+
     /**
      * Remove all instances from manager.
      */
@@ -208,6 +463,20 @@ public interface Manager<K, O> {
      */
     Collection<O> values();
 
+    /**
+     * Returns an unmodifiable snapshot of the values contained in this manager. The snapshot is cached and is
+     * rebuilt only after the manager is modified, so repeated iteration over a rarely changed manager is cheap.
+     * Changes to the manager are not reflected in a returned snapshot.
+     * <p>
+     * The default implementation copies {@link #values()} on each call.
+     *
+     * @return an unmodifiable list of the values contained in this manager.
+     * @see #values()
+     */
+    default List<O> valuesSnapshot() {
+        return Collections.unmodifiableList(new ArrayList<>(values()));
+    }
+
     /**
      * Returns <code>true</code> if this manages contains no objects.
      *
@@ -289,6 +558,159 @@ public interface Manager<K, O> {
         void upgradeLock();
 
         void downgradeLock();
+
+        /**
+         * Acquires the read lock unless the current thread is interrupted.
+         * <p>
+         * The default implementation checks the interrupt status before waiting by {@link #lockRead()}, the wait itself
+         * is not interruptible. A lock supporting interruption should override the method.
+         *
+         * @throws InterruptedException if the current thread is interrupted while waiting.
+         */
+        default void lockReadInterruptibly() throws InterruptedException {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            lockRead();
+        }
+
+        /**
+         * Acquires the read lock if it is available within the given waiting time and the current thread has not been
+         * interrupted.
+         * <p>
+         * The default implementation waits for the lock by {@link #lockReadInterruptibly()} without the
+         * timeout and always returns {@code true}. The timed methods of the manager (e.g.
+         * {@link Manager#get(Object, long, TimeUnit)}) honor the timeout only with a lock overriding this method.
+         *
+         * @param timeout the maximum time to wait for the lock
+         * @param unit    the time unit of the {@code timeout} argument
+         * @return {@code true} if the lock was acquired, {@code false} if the waiting time elapsed.
+         * @throws InterruptedException if the current thread is interrupted while waiting.
+         */
+        default boolean tryLockRead(long timeout, TimeUnit unit) throws InterruptedException {
+            lockReadInterruptibly();
+            return true;
+        }
+
+        /**
+         * Acquires the write lock unless the current thread is interrupted.
+         * <p>
+         * The default implementation checks the interrupt status before waiting by {@link #lockWrite()}, the wait
+         * itself is not interruptible. A lock supporting interruption should override the method.
+         *
+         * @throws InterruptedException if the current thread is interrupted while waiting.
+         */
+        default void lockWriteInterruptibly() throws InterruptedException {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            lockWrite();
+        }
+
+        /**
+         * Acquires the write lock if it is available within the given waiting time and the current thread has not been
+         * interrupted.
+         * <p>
+         * The default implementation waits for the lock by {@link #lockWriteInterruptibly()} without the
+         * timeout and always returns {@code true}. The timed methods of the manager (e.g.
+         * {@link Manager#computeIfAbsent(Object, Function, long, TimeUnit)}) honor the timeout only with a lock
+         * overriding this method.
+         *
+         * @param timeout the maximum time to wait for the lock
+         * @param unit    the time unit of the {@code timeout} argument
+         * @return {@code true} if the lock was acquired, {@code false} if the waiting time elapsed.
+         * @throws InterruptedException if the current thread is interrupted while waiting.
+         */
+        default boolean tryLockWrite(long timeout, TimeUnit unit) throws InterruptedException {
+            lockWriteInterruptibly();
+            return true;
+        }
+
+        /**
+         * Upgrades the read lock to the write lock like {@link #upgradeLock()}, if the write lock is available within
+         * the given waiting time and the current thread has not been interrupted. If the method returns {@code false}
+         * or throws {@link InterruptedException}, the read lock of the current thread has been released.
+         * <p>
+         * The default implementation calls {@link #upgradeLock()} without the timeout and always returns
+         * {@code true}.
+         *
+         * @param timeout the maximum time to wait for the lock
+         * @param unit    the time unit of the {@code timeout} argument
+         * @return {@code true} if the lock was upgraded, {@code false} if the waiting time elapsed.
+         * @throws InterruptedException if the current thread is interrupted while waiting.
+         */
+        default boolean tryUpgradeLock(long timeout, TimeUnit unit) throws InterruptedException {
+            upgradeLock();
+            return true;
+        }
+
+        /**
+         * Acquires the upgradable read lock. At most one thread holds the upgradable read lock at a time, it coexists
+         * with plain readers and excludes writers.
+         * <p>
+         * The lock must be released by {@link #unlockUpgradableRead()}. The default implementation acquires
+         * the read lock.
+         */
+        default void lockUpgradableRead() {
+            lockRead();
+        }
+
+        /**
+         * Acquires the upgradable read lock if it is available within the given waiting time and the current thread
+         * has not been interrupted. The default implementation calls {@link #tryLockRead(long, TimeUnit)}.
+         *
+         * @param timeout the maximum time to wait for the lock
+         * @param unit    the time unit of the {@code timeout} argument
+         * @return {@code true} if the lock was acquired, {@code false} if the waiting time elapsed.
+         * @throws InterruptedException if the current thread is interrupted while waiting.
+         */
+        default boolean tryLockUpgradableRead(long timeout, TimeUnit unit) throws InterruptedException {
+            return tryLockRead(timeout, unit);
+        }
+
+        default void unlockUpgradableRead() {
+            unlockRead();
+        }
+
+        /**
+         * Upgrades the upgradable read lock to the write lock. The write lock must be downgraded back by
+         * {@link #downgradeToUpgradableRead()}.
+         * <p>
+         * The default implementation calls {@link #upgradeLock()}, which may let other writers in.
+         *
+         * @return {@code true} if the upgrade is atomic and the state read under the upgradable read lock is still
+         * actual; {@code false} if the state must be read again.
+         */
+        default boolean upgradeUpgradableRead() {
+            upgradeLock();
+            return false;
+        }
+
+        default void downgradeToUpgradableRead() {
+            downgradeLock();
+        }
+
+        /**
+         * Returns a stamp that can later be validated by {@link #validate(long)}, or zero if the lock is exclusively
+         * held or the implementation does not support optimistic reading.
+         * <p>
+         * The stamp does not block writers. The data read under the stamp may be used only after successful validation.
+         *
+         * @return a non-zero stamp, or zero if optimistic reading is not available
+         */
+        default long tryOptimisticRead() {
+            return 0L;
+        }
+
+        /**
+         * Returns {@code true} if the write lock has not been acquired since issuance of the given stamp.
+         *
+         * @param stamp a stamp returned by {@link #tryOptimisticRead()}
+         * @return {@code true} if the data read under the stamp is consistent, else {@code false}
+         */
+        default boolean validate(long stamp) {
+            return false;
+        }
     }
 
     static <K> LockSource<K> noopLockSource() {
@@ -0,0 +1,60 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager;
+
+import com.devives.commons.manager.AbstractManager.Entry;
+
+/**
+ * Per-thread direct-mapped cache of the entries of hot keys, see {@link AbstractManager#setNearCacheCapacity(int)}.
+ * <p>
+ * The cache is confined to its thread, no field is volatile. An entry is put only in the
+ * {@link Entry.State#STARTED} state and is validated by the state on every hit, so an entry removed from the manager
+ * is never served: its state is not {@link Entry.State#STARTED} any more, the caller falls back to the entry map
+ * and overwrites the slot.
+ *
+ * @param <K> type of key
+ * @param <O> type of managed object
+ */
+final class NearCache<K, O> {
+
+    private final Object[] keys_;
+    private final Entry<O>[] entries_;
+    private final int mask_;
+
+    /**
+     * @param capacity power of two.
+     */
+    @SuppressWarnings("unchecked")
+    NearCache(int capacity) {
+        keys_ = new Object[capacity];
+        entries_ = new Entry[capacity];
+        mask_ = capacity - 1;
+    }
+
+    Entry<O> get(Object key) {
+        final int index = FrozenEntryTable.spread(key.hashCode()) & mask_;
+        final Object k = keys_[index];
+        return k == key || (k != null && k.equals(key)) ? entries_[index] : null;
+    }
+
+    void put(Object key, Entry<O> entry) {
+        final int index = FrozenEntryTable.spread(key.hashCode()) & mask_;
+        keys_[index] = key;
+        entries_[index] = entry;
+    }
+
+}
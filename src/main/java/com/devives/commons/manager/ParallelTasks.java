@@ -0,0 +1,107 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs indexed tasks by a bounded count of workers of an {@link Executor} and waits for their completion.
+ * <p>
+ * The workers take the indexes from a shared counter, so a slow task does not hold back the others. A worker
+ * rejected by the executor runs on the calling thread. The waiting is not interruptible: the tasks create and remove
+ * managed objects, and the caller must account all of them. The interrupt status is restored after the waiting.
+ */
+final class ParallelTasks {
+
+    /**
+     * Task of a single index.
+     */
+    @FunctionalInterface
+    interface Task {
+        void run(int index) throws Exception;
+    }
+
+    private ParallelTasks() {
+    }
+
+    /**
+     * @param executor executor of the workers.
+     * @return the parallelism of the executor, if it is a {@link ForkJoinPool}, else the parallelism of the common pool.
+     */
+    static int parallelismOf(Executor executor) {
+        return executor instanceof ForkJoinPool
+                ? ((ForkJoinPool) executor).getParallelism()
+                : ForkJoinPool.getCommonPoolParallelism();
+    }
+
+    /**
+     * @param count       count of the indexes.
+     * @param parallelism maximum count of the concurrently running workers.
+     * @param executor    executor of the workers.
+     * @param task        task of an index.
+     * @return failures of the tasks by index, or {@code null} if all tasks succeeded.
+     */
+    static Throwable[] run(int count, int parallelism, Executor executor, Task task) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be positive: " + parallelism);
+        }
+        final Throwable[] failures = new Throwable[count];
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final int workers = Math.min(count, parallelism);
+        final CountDownLatch completed = new CountDownLatch(workers);
+        final Runnable worker = () -> {
+            try {
+                for (int index = next.getAndIncrement(); index < count; index = next.getAndIncrement()) {
+                    try {
+                        task.run(index);
+                    } catch (Throwable th) {
+                        failures[index] = th;
+                        failed.incrementAndGet();
+                    }
+                }
+            } finally {
+                completed.countDown();
+            }
+        };
+        for (int i = 0; i < workers; i++) {
+            try {
+                executor.execute(worker);
+            } catch (RejectedExecutionException e) {
+                worker.run();
+            }
+        }
+        boolean interrupted = false;
+        for (; ; ) {
+            try {
+                completed.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return failed.get() > 0 ? failures : null;
+    }
+
+}
@@ -167,6 +167,18 @@ public class UsageCountingManager<K, O> implements Serializable {
         return internalManager_.values();
     }
 
+    /**
+     * Возвращает неизменяемый снимок объектов, содержащихся в менеджере. Снимок кэшируется и перестраивается только
+     * после изменения менеджера.
+     * <p>
+     * Обращение к элементам снимка не увеличивает счётчик использования.
+     *
+     * @return неизменяемый список объектов, содержащихся в менеджере.
+     */
+    public List<O> valuesSnapshot() {
+        return internalManager_.valuesSnapshot();
+    }
+
     /**
      * Уменьшает счётчик использований объекта, соответствующего ключу {@code key}.
      * <p>
@@ -339,6 +351,17 @@ public class UsageCountingManager<K, O> implements Serializable {
             ((CountingEntry<O>) entry).incUsages();
         }
 
+        /**
+         * Счётчик использований изменяется только под блокировкой на чтение, что бы {@link #release(Object)} видел
+         * согласованное значение после повышения блокировки.
+         *
+         * @return {@code true}
+         */
+        @Override
+        protected boolean isOnEntryGotLockRequired() {
+            return true;
+        }
+
         /**
          * Уменьшает число использований.
          * <p>
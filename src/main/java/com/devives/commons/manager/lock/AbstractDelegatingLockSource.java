@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager.lock;
+
+import com.devives.commons.manager.Manager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base implementation of a lock source decorator. Keeps one {@link DelegatingLock} per key, which wraps the lock of
+ * the key from the delegate source and forwards all the calls to it.
+ *
+ * @param <K> key type
+ */
+public abstract class AbstractDelegatingLockSource<K> extends AbstractLockSource<K> {
+
+    private final Manager.LockSource<K> delegate_;
+
+    protected AbstractDelegatingLockSource(Manager.LockSource<K> delegate) {
+        delegate_ = delegate;
+    }
+
+    /**
+     * Not called: the lock is acquired from the delegate by the key, see {@link #doAcquireLock(Object)}.
+     */
+    @Override
+    protected final <E extends Manager.Lock> E doAcquireLock() {
+        throw new UnsupportedOperationException("The lock is acquired from the delegate by the key.");
+    }
+
+    @Override
+    protected final <E extends Manager.Lock> E doAcquireLock(K key) {
+        return (E) newLock(key, delegate_.acquire(key));
+    }
+
+    @Override
+    protected <E extends Manager.Lock> void doReleaseLock(E lock) {
+        delegate_.release(((DelegatingLock) lock).getKey());
+    }
+
+    /**
+     * Creates the lock of the key.
+     *
+     * @param key      the key
+     * @param delegate the lock of the key acquired from the delegate source.
+     * @return new lock
+     */
+    protected abstract DelegatingLock newLock(K key, Manager.Lock delegate);
+
+    /**
+     * Lock forwarding all the calls to the lock of the delegate source.
+     */
+    protected abstract class DelegatingLock extends AbstractLock {
+        protected final K key_;
+        protected final Manager.Lock delegate_;
+
+        protected DelegatingLock(K key, Manager.Lock delegate) {
+            key_ = key;
+            delegate_ = delegate;
+        }
+
+        public final K getKey() {
+            return key_;
+        }
+
+        @Override
+        public void lockRead() {
+            delegate_.lockRead();
+        }
+
+        @Override
+        public void unlockRead() {
+            delegate_.unlockRead();
+        }
+
+        @Override
+        public void lockWrite() {
+            delegate_.lockWrite();
+        }
+
+        @Override
+        public void unlockWrite() {
+            delegate_.unlockWrite();
+        }
+
+        @Override
+        public void upgradeLock() {
+            delegate_.upgradeLock();
+        }
+
+        @Override
+        public boolean tryUpgradeLock(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate_.tryUpgradeLock(timeout, unit);
+        }
+
+        @Override
+        public void downgradeLock() {
+            delegate_.downgradeLock();
+        }
+
+        @Override
+        public void lockReadInterruptibly() throws InterruptedException {
+            delegate_.lockReadInterruptibly();
+        }
+
+        @Override
+        public boolean tryLockRead(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate_.tryLockRead(timeout, unit);
+        }
+
+        @Override
+        public void lockWriteInterruptibly() throws InterruptedException {
+            delegate_.lockWriteInterruptibly();
+        }
+
+        @Override
+        public boolean tryLockWrite(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate_.tryLockWrite(timeout, unit);
+        }
+
+        @Override
+        public void lockUpgradableRead() {
+            delegate_.lockUpgradableRead();
+        }
+
+        @Override
+        public boolean tryLockUpgradableRead(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate_.tryLockUpgradableRead(timeout, unit);
+        }
+
+        @Override
+        public void unlockUpgradableRead() {
+            delegate_.unlockUpgradableRead();
+        }
+
+        @Override
+        public boolean upgradeUpgradableRead() {
+            return delegate_.upgradeUpgradableRead();
+        }
+
+        @Override
+        public void downgradeToUpgradableRead() {
+            delegate_.downgradeToUpgradableRead();
+        }
+
+        @Override
+        public long tryOptimisticRead() {
+            return delegate_.tryOptimisticRead();
+        }
+
+        @Override
+        public boolean validate(long stamp) {
+            return delegate_.validate(stamp);
+        }
+    }
+
+}
@@ -19,47 +19,129 @@ package com.devives.commons.manager.lock;
 import com.devives.commons.manager.Manager;
 import com.devives.commons.util.usage.UsageCounter;
 
+import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * Base implementation of {@link Manager.LockSource} that maintains one lock instance per manager key.
  * <p>
- * The source keeps locks in an internal concurrent map and removes them automatically when no thread
- * holds a registered interest in the corresponding key anymore.
+ * The source keeps locks in an internal concurrent map. By default a lock is removed as soon as no thread
+ * holds a registered interest in the corresponding key anymore, and the next acquisition of the key allocates
+ * a new lock. A source created with a positive count of idle locks keeps released locks in the map for reuse,
+ * and reclaims them lazily: once the map grows over the given count, a sweep removes idle locks until the map
+ * holds a half of the count.
+ * <p>
+ * The acquisition of a lock present in the map does not write to the map.
  *
  * @param <K> key type
  */
 public abstract class AbstractLockSource<K> implements Manager.LockSource<K> {
 
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<AbstractLockSource.AbstractLock> USAGE_COUNT =
+            AtomicIntegerFieldUpdater.newUpdater(AbstractLockSource.AbstractLock.class, "usageCount_");
+    /**
+     * Usage count of a lock removed from the map. Such lock can not be acquired anymore.
+     */
+    private static final int RETIRED = -1;
+
     protected final Map<K, Manager.Lock> map_ = new ConcurrentHashMap<>();
+    private final int maxIdleLocks_;
+    private final AtomicBoolean sweeping_ = new AtomicBoolean(false);
+
+    protected AbstractLockSource() {
+        this(0);
+    }
+
+    /**
+     * @param maxIdleLocks the count of locks in the map, above which idle locks are reclaimed.
+     *                     {@code 0} reclaims a lock on its last release. The count should exceed the count of keys
+     *                     used concurrently, else the sweeps repeat often.
+     */
+    protected AbstractLockSource(int maxIdleLocks) {
+        if (maxIdleLocks < 0) {
+            throw new IllegalArgumentException("The count of idle locks must not be negative: " + maxIdleLocks);
+        }
+        maxIdleLocks_ = maxIdleLocks;
+    }
 
     public final Manager.Lock acquire(final K key) {
-        return map_.compute(key, (k, lock) -> {
-            if (lock == null) {
-                lock = doAcquireLock();
-            }
-            ((AbstractLock) lock).incUsageCount();
+        final AbstractLock lock = (AbstractLock) map_.get(key);
+        if (lock != null && lock.tryIncUsageCount()) {
             return lock;
+        }
+        return map_.compute(key, (k, current) -> {
+            if (current == null || !((AbstractLock) current).tryIncUsageCount()) {
+                // The lock is absent or retired and is being removed by the releasing thread.
+                current = doAcquireLock(k);
+                ((AbstractLock) current).incUsageCount();
+            }
+            return current;
         });
     }
 
     public final void release(final K key) {
-        map_.computeIfPresent(key, (k, lock) -> {
-            final long usages = ((AbstractLock) lock).decUsageCount();
-            if (usages == 0) {
-                doReleaseLock(lock);
-                return null;
-            } else if (usages > 0) {
-                return lock;
-            } else {
-                throw new RuntimeException("Counter below zero!");
+        final AbstractLock lock = (AbstractLock) map_.get(key);
+        if (lock == null) {
+            return;
+        }
+        final int usages = lock.decUsageCount();
+        if (usages == 0) {
+            if (maxIdleLocks_ == 0) {
+                tryRetire(key, lock);
+            } else if (map_.size() > maxIdleLocks_) {
+                sweep();
             }
-        });
+        } else if (usages < 0) {
+            throw new RuntimeException("Counter below zero!");
+        }
+    }
+
+    private boolean tryRetire(K key, AbstractLock lock) {
+        if (USAGE_COUNT.compareAndSet(lock, 0, RETIRED)) {
+            map_.remove(key, lock);
+            doReleaseLock(lock);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes idle locks until the map holds a half of {@link #maxIdleLocks_}. Only one thread sweeps at a time, the others do not wait for it.
+     */
+    private void sweep() {
+        if (!sweeping_.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            final int target = maxIdleLocks_ / 2;
+            final Iterator<Map.Entry<K, Manager.Lock>> iterator = map_.entrySet().iterator();
+            while (iterator.hasNext() && map_.size() > target) {
+                final Map.Entry<K, Manager.Lock> entry = iterator.next();
+                tryRetire(entry.getKey(), (AbstractLock) entry.getValue());
+            }
+        } finally {
+            sweeping_.set(false);
+        }
     }
 
     protected abstract <E extends Manager.Lock> E doAcquireLock();
 
+    /**
+     * Creates the lock of the key. Allows to choose the lock implementation by the key, the default implementation
+     * ignores the key and calls {@link #doAcquireLock()}.
+     *
+     * @param key the key
+     * @param <E> type of lock
+     * @return new lock
+     */
+    protected <E extends Manager.Lock> E doAcquireLock(K key) {
+        return doAcquireLock();
+    }
+
     protected <E extends Manager.Lock> void doReleaseLock(E lock) {
         // Do nothing.
     }
@@ -73,8 +155,10 @@ public abstract class AbstractLockSource<K> implements Manager.LockSource<K> {
          * Number of threads with registered interest in this key.
          * register(K) increments this counter and deRegister(K) decrements it.
          * Invariant: empty entry will not be dropped unless internalUsageCount is 0.
+         * {@link #RETIRED} marks the lock removed from the map.
+         * Not private, the field is updated by the field updater of the enclosing class.
          */
-        private int usageCount_ = 0;
+        volatile int usageCount_ = 0;
 
         public int getUsageCount() {
             return usageCount_;
@@ -82,12 +166,29 @@ public abstract class AbstractLockSource<K> implements Manager.LockSource<K> {
 
         @Override
         public int incUsageCount() {
-            return ++usageCount_;
+            return USAGE_COUNT.incrementAndGet(this);
         }
 
         @Override
         public int decUsageCount() {
-            return --usageCount_;
+            return USAGE_COUNT.decrementAndGet(this);
+        }
+
+        /**
+         * Increments the usage count unless the lock is retired.
+         *
+         * @return {@code false} if the lock is retired.
+         */
+        boolean tryIncUsageCount() {
+            for (; ; ) {
+                final int usages = usageCount_;
+                if (usages == RETIRED) {
+                    return false;
+                }
+                if (USAGE_COUNT.compareAndSet(this, usages, usages + 1)) {
+                    return true;
+                }
+            }
         }
 
     }
@@ -0,0 +1,388 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager.lock;
+
+import com.devives.commons.manager.Manager;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock source, which chooses the lock implementation from the observed read/write mix.
+ * <p>
+ * The keys are spread over a fixed count of stripes. Each lock counts its reads and writes and samples the time spent
+ * waiting for them, and flushes the counters to the statistics of its stripe. After every {@link #DECISION_SAMPLE}
+ * operations of a stripe its {@link Strategy} is recomputed:
+ * <ul>
+ *     <li>{@link Strategy#EXCLUSIVE}, if writes make at least a half of the operations. Readers rarely share the lock
+ *     then, and the exclusive lock is cheaper than the read-write one;</li>
+ *     <li>{@link Strategy#FAIR_READ_WRITE}, if the writers wait much longer than the readers, i.e. the writers
+ *     starve under the non-fair policy;</li>
+ *     <li>{@link Strategy#NON_FAIR_READ_WRITE} otherwise.</li>
+ * </ul>
+ * The strategy of a stripe applies to the locks allocated after the decision. A lock keeps its implementation while
+ * any thread holds an interest in its key. The counters of a lock are atomic and are flushed to the stripe every
+ * 256 reads or writes and on retire, so a decision lags the load a little.
+ *
+ * @param <K> key type
+ */
+public final class AdaptiveLockSource<K> extends AbstractLockSource<K> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The count of operations of a stripe between two decisions.
+     */
+    public static final int DECISION_SAMPLE = 4096;
+    /**
+     * Writers waiting this times longer than readers on average are considered starving.
+     */
+    private static final int STARVATION_FACTOR = 4;
+    /**
+     * Every 8th operation of a lock measures its wait time.
+     */
+    private static final int TIMING_MASK = 7;
+    /**
+     * A lock flushes its counters to the stripe every 256 reads or writes and on retire.
+     */
+    private static final int FLUSH_MASK = 255;
+
+    private static final int READS = 0;
+    private static final int WRITES = 1;
+    private static final int READ_WAIT = 2;
+    private static final int WRITE_WAIT = 3;
+    private static final int READ_TIMINGS = 4;
+    private static final int WRITE_TIMINGS = 5;
+    private static final int COUNTERS = 6;
+
+    /**
+     * Lock implementation chosen for a stripe.
+     */
+    public enum Strategy {
+        /**
+         * {@link RWLockSource} with the non-fair policy.
+         */
+        NON_FAIR_READ_WRITE,
+        /**
+         * {@link RWLockSource} with the fair policy.
+         */
+        FAIR_READ_WRITE,
+        /**
+         * {@link ReentrantLockSource}, read and write access are serialized.
+         */
+        EXCLUSIVE
+    }
+
+    private final RWLockSource<K> nonFairSource_ = new RWLockSource<>(false);
+    private final RWLockSource<K> fairSource_ = new RWLockSource<>(true);
+    private final ReentrantLockSource<K> exclusiveSource_ = new ReentrantLockSource<>(false);
+    private final int mask_;
+    private final AtomicReferenceArray<Strategy> strategies_;
+    private final AtomicLongArray stats_;
+
+    /**
+     * Creates a lock source with 64 stripes.
+     */
+    public AdaptiveLockSource() {
+        this(64);
+    }
+
+    /**
+     * Creates a lock source.
+     *
+     * @param stripes the count of stripes collecting the statistics, rounded up to a power of two.
+     */
+    public AdaptiveLockSource(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("The count of stripes must be positive: " + stripes);
+        }
+        final int size = stripes > 1 ? Integer.highestOneBit(stripes - 1) << 1 : 1;
+        mask_ = size - 1;
+        strategies_ = new AtomicReferenceArray<>(size);
+        for (int i = 0; i < size; i++) {
+            strategies_.set(i, Strategy.NON_FAIR_READ_WRITE);
+        }
+        stats_ = new AtomicLongArray(size * COUNTERS);
+    }
+
+    /**
+     * Returns the strategy of the locks allocated for the key now.
+     *
+     * @param key the key
+     * @return the strategy of the stripe of the key.
+     */
+    public Strategy getStrategy(K key) {
+        return strategies_.get(stripeOf(key));
+    }
+
+    /**
+     * Not called: the lock implementation is chosen by the key, see {@link #doAcquireLock(Object)}.
+     */
+    @Override
+    protected final <E extends Manager.Lock> E doAcquireLock() {
+        throw new UnsupportedOperationException("The lock implementation is chosen by the key.");
+    }
+
+    @Override
+    protected <E extends Manager.Lock> E doAcquireLock(K key) {
+        final int stripe = stripeOf(key);
+        final Strategy strategy = strategies_.get(stripe);
+        final Manager.Lock delegate;
+        switch (strategy) {
+            case FAIR_READ_WRITE:
+                delegate = fairSource_.doAcquireLock();
+                break;
+            case EXCLUSIVE:
+                delegate = exclusiveSource_.doAcquireLock();
+                break;
+            default:
+                delegate = nonFairSource_.doAcquireLock();
+        }
+        return (E) new AdaptiveLock(stripe, delegate);
+    }
+
+    @Override
+    protected <E extends Manager.Lock> void doReleaseLock(E lock) {
+        ((AdaptiveLock) lock).flush();
+    }
+
+    private int stripeOf(K key) {
+        final int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask_;
+    }
+
+    private void addStats(int stripe, long reads, long writes, long readWait, long writeWait, long readTimings, long writeTimings) {
+        final int base = stripe * COUNTERS;
+        stats_.addAndGet(base + READ_WAIT, readWait);
+        stats_.addAndGet(base + WRITE_WAIT, writeWait);
+        stats_.addAndGet(base + READ_TIMINGS, readTimings);
+        stats_.addAndGet(base + WRITE_TIMINGS, writeTimings);
+        final long r = stats_.addAndGet(base + READS, reads);
+        final long w = stats_.addAndGet(base + WRITES, writes);
+        if (r + w >= DECISION_SAMPLE) {
+            decide(stripe, base);
+        }
+    }
+
+    private void decide(int stripe, int base) {
+        final long reads = stats_.get(base + READS);
+        final long writes = stats_.get(base + WRITES);
+        if (reads + writes < DECISION_SAMPLE) {
+            // Another thread has decided already.
+            return;
+        }
+        final long readTimings = stats_.get(base + READ_TIMINGS);
+        final long writeTimings = stats_.get(base + WRITE_TIMINGS);
+        final long avgReadWait = readTimings > 0 ? stats_.get(base + READ_WAIT) / readTimings : 0L;
+        final long avgWriteWait = writeTimings > 0 ? stats_.get(base + WRITE_WAIT) / writeTimings : 0L;
+        final Strategy strategy;
+        if (writes * 2 >= reads + writes) {
+            strategy = Strategy.EXCLUSIVE;
+        } else if (avgWriteWait > STARVATION_FACTOR * Math.max(avgReadWait, 1L)) {
+            strategy = Strategy.FAIR_READ_WRITE;
+        } else {
+            strategy = Strategy.NON_FAIR_READ_WRITE;
+        }
+        strategies_.set(stripe, strategy);
+        // Start the next sample from scratch, the old load must not outweigh the new one.
+        for (int i = 0; i < COUNTERS; i++) {
+            stats_.set(base + i, 0L);
+        }
+    }
+
+    /**
+     * Lock counting the operations of its delegate.
+     * <p>
+     * The counters are shared by all the threads using the lock, so they are atomic: flushing takes each counter
+     * with {@code getAndSet(0)} and does not lose the operations counted concurrently.
+     */
+    final class AdaptiveLock extends AbstractLock {
+        private final int stripe_;
+        private final Manager.Lock delegate_;
+        private final AtomicLongArray counters_ = new AtomicLongArray(COUNTERS);
+
+        AdaptiveLock(int stripe, Manager.Lock delegate) {
+            stripe_ = stripe;
+            delegate_ = delegate;
+        }
+
+        /**
+         * @return start time of the timed operation, or zero if the operation is not timed.
+         */
+        private long start(int counter) {
+            final long count = counters_.incrementAndGet(counter);
+            if ((count & FLUSH_MASK) == 0) {
+                flush();
+            }
+            return (count & TIMING_MASK) == 0 ? System.nanoTime() : 0L;
+        }
+
+        private long startRead() {
+            return start(READS);
+        }
+
+        private long startWrite() {
+            return start(WRITES);
+        }
+
+        private void endRead(long start) {
+            if (start != 0L) {
+                counters_.addAndGet(READ_WAIT, System.nanoTime() - start);
+                counters_.incrementAndGet(READ_TIMINGS);
+            }
+        }
+
+        private void endWrite(long start) {
+            if (start != 0L) {
+                counters_.addAndGet(WRITE_WAIT, System.nanoTime() - start);
+                counters_.incrementAndGet(WRITE_TIMINGS);
+            }
+        }
+
+        void flush() {
+            final long reads = counters_.getAndSet(READS, 0L);
+            final long writes = counters_.getAndSet(WRITES, 0L);
+            final long readWait = counters_.getAndSet(READ_WAIT, 0L);
+            final long writeWait = counters_.getAndSet(WRITE_WAIT, 0L);
+            final long readTimings = counters_.getAndSet(READ_TIMINGS, 0L);
+            final long writeTimings = counters_.getAndSet(WRITE_TIMINGS, 0L);
+            if (reads == 0L && writes == 0L && readTimings == 0L && writeTimings == 0L) {
+                return;
+            }
+            addStats(stripe_, reads, writes, readWait, writeWait, readTimings, writeTimings);
+        }
+
+        @Override
+        public void lockRead() {
+            final long start = startRead();
+            delegate_.lockRead();
+            endRead(start);
+        }
+
+        @Override
+        public void unlockRead() {
+            delegate_.unlockRead();
+        }
+
+        @Override
+        public void lockWrite() {
+            final long start = startWrite();
+            delegate_.lockWrite();
+            endWrite(start);
+        }
+
+        @Override
+        public void unlockWrite() {
+            delegate_.unlockWrite();
+        }
+
+        @Override
+        public void upgradeLock() {
+            final long start = startWrite();
+            delegate_.upgradeLock();
+            endWrite(start);
+        }
+
+        @Override
+        public boolean tryUpgradeLock(long timeout, TimeUnit unit) throws InterruptedException {
+            final long start = startWrite();
+            final boolean locked = delegate_.tryUpgradeLock(timeout, unit);
+            endWrite(start);
+            return locked;
+        }
+
+        @Override
+        public void downgradeLock() {
+            delegate_.downgradeLock();
+        }
+
+        @Override
+        public void lockReadInterruptibly() throws InterruptedException {
+            final long start = startRead();
+            delegate_.lockReadInterruptibly();
+            endRead(start);
+        }
+
+        @Override
+        public boolean tryLockRead(long timeout, TimeUnit unit) throws InterruptedException {
+            final long start = startRead();
+            final boolean locked = delegate_.tryLockRead(timeout, unit);
+            endRead(start);
+            return locked;
+        }
+
+        @Override
+        public void lockWriteInterruptibly() throws InterruptedException {
+            final long start = startWrite();
+            delegate_.lockWriteInterruptibly();
+            endWrite(start);
+        }
+
+        @Override
+        public boolean tryLockWrite(long timeout, TimeUnit unit) throws InterruptedException {
+            final long start = startWrite();
+            final boolean locked = delegate_.tryLockWrite(timeout, unit);
+            endWrite(start);
+            return locked;
+        }
+
+        @Override
+        public void lockUpgradableRead() {
+            final long start = startRead();
+            delegate_.lockUpgradableRead();
+            endRead(start);
+        }
+
+        @Override
+        public boolean tryLockUpgradableRead(long timeout, TimeUnit unit) throws InterruptedException {
+            final long start = startRead();
+            final boolean locked = delegate_.tryLockUpgradableRead(timeout, unit);
+            endRead(start);
+            return locked;
+        }
+
+        @Override
+        public void unlockUpgradableRead() {
+            delegate_.unlockUpgradableRead();
+        }
+
+        @Override
+        public boolean upgradeUpgradableRead() {
+            final long start = startWrite();
+            final boolean atomic = delegate_.upgradeUpgradableRead();
+            endWrite(start);
+            return atomic;
+        }
+
+        @Override
+        public void downgradeToUpgradableRead() {
+            delegate_.downgradeToUpgradableRead();
+        }
+
+        @Override
+        public long tryOptimisticRead() {
+            return delegate_.tryOptimisticRead();
+        }
+
+        @Override
+        public boolean validate(long stamp) {
+            return delegate_.validate(stamp);
+        }
+    }
+
+}
@@ -0,0 +1,297 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager.lock;
+
+import com.devives.commons.lang.ExceptionUtils;
+import com.devives.commons.manager.Manager;
+import com.devives.commons.manager.ManagerException;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lock source decorator, which detects deadlocks of the threads waiting for the locks of each other.
+ * <p>
+ * A factory or an adapter may access the manager recursively. When the factory of the key A on one thread needs
+ * the key B, and the factory of the key B on another thread needs the key A, both threads would wait for good.
+ * This source keeps the wait-for graph: the owner of the write (or upgradable read) lock of each key, and the lock
+ * each thread is blocked on. A thread, which is going to block, walks the graph, and if the walk returns to
+ * the thread, the acquisition fails with {@link ManagerException} naming the chain of keys.
+ * <p>
+ * The overhead:
+ * <ul>
+ *     <li>an uncontended acquisition of the read or write lock is a zero-timeout try of the delegate lock
+ *     and the update of the lock owner;</li>
+ *     <li>a thread going to block registers itself in the global wait map and walks the graph.</li>
+ * </ul>
+ * The graph is global, so cycles across lock sources and managers are detected too. The cycle is checked by each
+ * thread before it blocks, so the last thread closing the cycle fails. Cycles through the holders of the read locks
+ * and through the locks shared by keys (e.g. {@link StripedLockSource}) are not detected.
+ *
+ * @param <K> key type
+ */
+public final class DeadlockDetectingLockSource<K> extends AbstractDelegatingLockSource<K> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The locks the threads are blocked on.
+     */
+    private static final Map<Thread, DeadlockDetectingLockSource<?>.DetectingLock> WAITING = new ConcurrentHashMap<>();
+
+    /**
+     * @param delegate the source of the locks. The locks must support {@link Manager.Lock#tryLockRead(long, TimeUnit)}
+     *                 and {@link Manager.Lock#tryLockWrite(long, TimeUnit)}.
+     */
+    public DeadlockDetectingLockSource(Manager.LockSource<K> delegate) {
+        super(delegate);
+    }
+
+    @Override
+    protected DelegatingLock newLock(K key, Manager.Lock delegate) {
+        return new DetectingLock(key, delegate);
+    }
+
+    /**
+     * Blocking acquisition of a delegate lock.
+     */
+    @FunctionalInterface
+    private interface Acquisition {
+        void acquire(Manager.Lock lock) throws InterruptedException;
+    }
+
+    private static final Acquisition READ = Manager.Lock::lockRead;
+    private static final Acquisition READ_INTERRUPTIBLY = Manager.Lock::lockReadInterruptibly;
+    private static final Acquisition WRITE = Manager.Lock::lockWrite;
+    private static final Acquisition WRITE_INTERRUPTIBLY = Manager.Lock::lockWriteInterruptibly;
+    private static final Acquisition UPGRADE = Manager.Lock::upgradeLock;
+    private static final Acquisition UPGRADABLE_READ = Manager.Lock::lockUpgradableRead;
+
+    /**
+     * Lock tracking its owner.
+     */
+    final class DetectingLock extends DelegatingLock {
+        /**
+         * The thread holding the write or the upgradable read lock. Written only by the owner.
+         */
+        private volatile Thread owner_ = null;
+        /**
+         * Count of the write and upgradable read holds of the owner.
+         */
+        private int ownerHolds_ = 0;
+
+        DetectingLock(K key, Manager.Lock delegate) {
+            super(key, delegate);
+        }
+
+        private void own() {
+            final Thread currentThread = Thread.currentThread();
+            if (owner_ == currentThread) {
+                ownerHolds_++;
+            } else {
+                ownerHolds_ = 1;
+                owner_ = currentThread;
+            }
+        }
+
+        private void disown() {
+            if (--ownerHolds_ == 0) {
+                owner_ = null;
+            }
+        }
+
+        /**
+         * Blocks on the delegate lock, after the check, that the blocking does not close a cycle.
+         */
+        private void await(Acquisition acquisition) throws InterruptedException {
+            final Thread currentThread = Thread.currentThread();
+            WAITING.put(currentThread, this);
+            try {
+                checkDeadlock(currentThread);
+                acquisition.acquire(delegate_);
+            } finally {
+                WAITING.remove(currentThread);
+            }
+        }
+
+        private void awaitUninterruptibly(Acquisition acquisition) {
+            try {
+                await(acquisition);
+            } catch (InterruptedException e) {
+                // Not thrown by the uninterruptible acquisitions.
+                Thread.currentThread().interrupt();
+                throw ExceptionUtils.asUnchecked(e);
+            }
+        }
+
+        private void checkDeadlock(Thread currentThread) {
+            final List<DeadlockDetectingLockSource<?>.DetectingLock> cycle = findCycle(currentThread);
+            // The graph is read without a snapshot. The cycle of blocked threads is stable, re-check it.
+            if (cycle != null && findCycle(currentThread) != null) {
+                final StringBuilder message = new StringBuilder("Deadlock detected: thread '").append(currentThread.getName()).append('\'');
+                for (int i = 0; i < cycle.size(); i++) {
+                    final DeadlockDetectingLockSource<?>.DetectingLock lock = cycle.get(i);
+                    final Thread owner = lock.owner_;
+                    message.append(i == 0 ? " waits" : ", which waits").append(" for the key '").append(lock.key_)
+                            .append("' held by thread '").append(owner != null ? owner.getName() : "?").append('\'');
+                }
+                message.append('.');
+                throw ExceptionUtils.asUnchecked(new ManagerException(message.toString()));
+            }
+        }
+
+        /**
+         * @return the locks of the cycle starting from this lock, or {@code null} if there is no cycle.
+         */
+        private List<DeadlockDetectingLockSource<?>.DetectingLock> findCycle(Thread currentThread) {
+            List<DeadlockDetectingLockSource<?>.DetectingLock> chain = null;
+            DeadlockDetectingLockSource<?>.DetectingLock lock = this;
+            // A cycle of other threads, the current thread waits behind, ends the walk.
+            for (int steps = WAITING.size(); steps >= 0 && lock != null; steps--) {
+                final Thread owner = lock.owner_;
+                if (owner == null || (lock == this && owner == currentThread)) {
+                    // Free, or re-entered by the owner.
+                    return null;
+                }
+                if (chain == null) {
+                    chain = new ArrayList<>();
+                }
+                chain.add(lock);
+                if (owner == currentThread) {
+                    return chain;
+                }
+                lock = WAITING.get(owner);
+            }
+            return null;
+        }
+
+        private boolean tryLockReadNow() {
+            try {
+                return delegate_.tryLockRead(0L, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        private boolean tryLockWriteNow() {
+            try {
+                return delegate_.tryLockWrite(0L, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        @Override
+        public void lockRead() {
+            if (!tryLockReadNow()) {
+                awaitUninterruptibly(READ);
+            }
+        }
+
+        @Override
+        public void lockWrite() {
+            if (!tryLockWriteNow()) {
+                awaitUninterruptibly(WRITE);
+            }
+            own();
+        }
+
+        @Override
+        public void unlockWrite() {
+            disown();
+            delegate_.unlockWrite();
+        }
+
+        @Override
+        public void upgradeLock() {
+            awaitUninterruptibly(UPGRADE);
+            own();
+        }
+
+        @Override
+        public boolean tryUpgradeLock(long timeout, TimeUnit unit) throws InterruptedException {
+            if (!delegate_.tryUpgradeLock(timeout, unit)) {
+                return false;
+            }
+            own();
+            return true;
+        }
+
+        @Override
+        public void downgradeLock() {
+            disown();
+            delegate_.downgradeLock();
+        }
+
+        @Override
+        public void lockReadInterruptibly() throws InterruptedException {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (!delegate_.tryLockRead(0L, TimeUnit.NANOSECONDS)) {
+                await(READ_INTERRUPTIBLY);
+            }
+        }
+
+        @Override
+        public void lockWriteInterruptibly() throws InterruptedException {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (!delegate_.tryLockWrite(0L, TimeUnit.NANOSECONDS)) {
+                await(WRITE_INTERRUPTIBLY);
+            }
+            own();
+        }
+
+        @Override
+        public boolean tryLockWrite(long timeout, TimeUnit unit) throws InterruptedException {
+            if (!delegate_.tryLockWrite(timeout, unit)) {
+                return false;
+            }
+            own();
+            return true;
+        }
+
+        @Override
+        public void lockUpgradableRead() {
+            awaitUninterruptibly(UPGRADABLE_READ);
+            own();
+        }
+
+        @Override
+        public boolean tryLockUpgradableRead(long timeout, TimeUnit unit) throws InterruptedException {
+            if (!delegate_.tryLockUpgradableRead(timeout, unit)) {
+                return false;
+            }
+            own();
+            return true;
+        }
+
+        @Override
+        public void unlockUpgradableRead() {
+            disown();
+            delegate_.unlockUpgradableRead();
+        }
+    }
+
+}
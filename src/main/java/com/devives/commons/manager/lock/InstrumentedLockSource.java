@@ -0,0 +1,499 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager.lock;
+
+import com.devives.commons.manager.Manager;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock source decorator, which collects the contention statistics of each key.
+ * <p>
+ * The statistics of a key ({@link Statistics}) include the counts of the read and write acquisitions and of
+ * the upgrades, the count of the threads waiting for the lock now, and the histograms of the read wait, write wait
+ * and write hold times. The read hold time is not tracked, the read lock is shared.
+ * <p>
+ * The statistics of a key outlive its lock. The source keeps the statistics of at most {@code maxKeys} keys: once more
+ * keys are locked, the statistics of the keys with the shortest total wait are dropped until a half of
+ * {@code maxKeys} remain. A lock in use keeps updating its dropped statistics, the key is tracked again from the next
+ * allocation of its lock. The keys causing the longest waits are returned by {@link #getHotKeys(int)}:
+ * <pre>{@code
+ * InstrumentedLockSource<String> lockSource = new InstrumentedLockSource<>(new RWLockSource<>(false));
+ * Manager<String, Connection> manager = new ConcurrentHashManager<>(lockSource);
+ * ...
+ * for (Map.Entry<String, InstrumentedLockSource.Statistics> entry : lockSource.getHotKeys(10)) {
+ *     log.info("{}: {}", entry.getKey(), entry.getValue());
+ * }
+ * }</pre>
+ *
+ * @param <K> key type
+ */
+public final class InstrumentedLockSource<K> extends AbstractDelegatingLockSource<K> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The default count of keys with statistics.
+     */
+    public static final int DEFAULT_MAX_KEYS = 1024;
+
+    private final Map<K, Statistics> statistics_ = new ConcurrentHashMap<>();
+    private final int maxKeys_;
+    private final AtomicBoolean trimming_ = new AtomicBoolean(false);
+
+    public InstrumentedLockSource(Manager.LockSource<K> delegate) {
+        this(delegate, DEFAULT_MAX_KEYS);
+    }
+
+    /**
+     * @param delegate the source of the instrumented locks.
+     * @param maxKeys  the count of keys with statistics, above which the statistics of the keys with the shortest
+     *                 total wait are dropped.
+     */
+    public InstrumentedLockSource(Manager.LockSource<K> delegate, int maxKeys) {
+        super(delegate);
+        if (maxKeys <= 0) {
+            throw new IllegalArgumentException("The count of keys must be positive: " + maxKeys);
+        }
+        maxKeys_ = maxKeys;
+    }
+
+    @Override
+    protected DelegatingLock newLock(K key, Manager.Lock delegate) {
+        final Statistics statistics = statistics_.computeIfAbsent(key, k -> new Statistics());
+        if (statistics_.size() > maxKeys_) {
+            trim();
+        }
+        return new InstrumentedLock(key, delegate, statistics);
+    }
+
+    /**
+     * Drops the statistics of the keys with the shortest total wait until a half of {@link #maxKeys_} remain.
+     * Only one thread trims at a time, the others do not wait for it.
+     */
+    private void trim() {
+        if (!trimming_.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            final List<Map.Entry<K, Statistics>> entries = new ArrayList<>(statistics_.size());
+            for (Map.Entry<K, Statistics> entry : statistics_.entrySet()) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+            }
+            entries.sort(Comparator.comparingLong(entry -> entry.getValue().getTotalWaitNanos()));
+            final int excess = entries.size() - maxKeys_ / 2;
+            for (int i = 0; i < excess; i++) {
+                statistics_.remove(entries.get(i).getKey(), entries.get(i).getValue());
+            }
+        } finally {
+            trimming_.set(false);
+        }
+    }
+
+    /**
+     * @param key the key
+     * @return the statistics of the key, or {@code null} if the key was not locked since the last reset or its
+     * statistics were dropped.
+     */
+    public Statistics getStatistics(K key) {
+        return statistics_.get(key);
+    }
+
+    /**
+     * Returns the keys with the longest total wait time, read and write, in descending order.
+     *
+     * @param count the maximum count of keys.
+     * @return the keys and their statistics.
+     */
+    public List<Map.Entry<K, Statistics>> getHotKeys(int count) {
+        if (count <= 0) {
+            return Collections.emptyList();
+        }
+        final PriorityQueue<Map.Entry<K, Statistics>> top = new PriorityQueue<>(Math.min(count, statistics_.size()) + 1,
+                Comparator.comparingLong(entry -> entry.getValue().getTotalWaitNanos()));
+        for (Map.Entry<K, Statistics> entry : statistics_.entrySet()) {
+            top.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+            if (top.size() > count) {
+                top.poll();
+            }
+        }
+        final List<Map.Entry<K, Statistics>> result = new ArrayList<>(top);
+        result.sort(Comparator.comparingLong((Map.Entry<K, Statistics> entry) -> entry.getValue().getTotalWaitNanos()).reversed());
+        return result;
+    }
+
+    /**
+     * Drops the collected statistics. The locks in use continue to update the dropped statistics.
+     */
+    public void reset() {
+        statistics_.clear();
+    }
+
+    /**
+     * Contention statistics of a key.
+     */
+    public static final class Statistics implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final LongAdder readAcquires_ = new LongAdder();
+        private final LongAdder writeAcquires_ = new LongAdder();
+        private final LongAdder upgrades_ = new LongAdder();
+        private final LongAdder waiters_ = new LongAdder();
+        private final Histogram readWait_ = new Histogram();
+        private final Histogram writeWait_ = new Histogram();
+        private final Histogram writeHold_ = new Histogram();
+
+        Statistics() {
+        }
+
+        public long getReadAcquires() {
+            return readAcquires_.sum();
+        }
+
+        /**
+         * @return the count of the write acquisitions, including upgrades.
+         */
+        public long getWriteAcquires() {
+            return writeAcquires_.sum();
+        }
+
+        public long getUpgrades() {
+            return upgrades_.sum();
+        }
+
+        /**
+         * @return the count of the threads waiting for the lock now.
+         */
+        public long getWaiters() {
+            return waiters_.sum();
+        }
+
+        public Histogram getReadWait() {
+            return readWait_;
+        }
+
+        public Histogram getWriteWait() {
+            return writeWait_;
+        }
+
+        public Histogram getWriteHold() {
+            return writeHold_;
+        }
+
+        public long getTotalWaitNanos() {
+            return readWait_.getTotalNanos() + writeWait_.getTotalNanos();
+        }
+
+        @Override
+        public String toString() {
+            return "reads=" + getReadAcquires() + ", writes=" + getWriteAcquires() + ", upgrades=" + getUpgrades()
+                    + ", waiters=" + getWaiters() + ", readWait={" + readWait_ + "}, writeWait={" + writeWait_
+                    + "}, writeHold={" + writeHold_ + "}";
+        }
+    }
+
+    /**
+     * Histogram of durations with power of two buckets.
+     */
+    public static final class Histogram implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private static final int BUCKETS = 64;
+
+        /**
+         * The bucket {@code i} counts the durations in {@code [2^(i-1), 2^i)} nanoseconds, the bucket 0 counts zeros.
+         */
+        private final AtomicLongArray buckets_ = new AtomicLongArray(BUCKETS);
+        private final LongAdder totalNanos_ = new LongAdder();
+        private final AtomicLong maxNanos_ = new AtomicLong();
+
+        Histogram() {
+        }
+
+        void record(long duration) {
+            final long nanos = Math.max(0L, duration);
+            buckets_.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(nanos));
+            totalNanos_.add(nanos);
+            long max = maxNanos_.get();
+            while (nanos > max && !maxNanos_.compareAndSet(max, nanos)) {
+                max = maxNanos_.get();
+            }
+        }
+
+        public long getCount() {
+            long count = 0L;
+            for (int i = 0; i < BUCKETS; i++) {
+                count += buckets_.get(i);
+            }
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos_.sum();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos_.get();
+        }
+
+        /**
+         * Returns the upper bound of the bucket holding the given percentile, the estimate is at most two times
+         * above the exact value.
+         *
+         * @param percentile the percentile in {@code [0, 100]}, e.g. {@code 99.0}.
+         * @return the duration in nanoseconds, or {@code 0} if nothing is recorded.
+         */
+        public long getPercentileNanos(double percentile) {
+            if (percentile < 0.0 || percentile > 100.0) {
+                throw new IllegalArgumentException("The percentile must be in [0, 100]: " + percentile);
+            }
+            final long[] counts = new long[BUCKETS];
+            long total = 0L;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets_.get(i);
+                total += counts[i];
+            }
+            if (total == 0L) {
+                return 0L;
+            }
+            final long rank = Math.max(1L, (long) Math.ceil(total * percentile / 100.0));
+            long seen = 0L;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i == 0 ? 0L : Math.min((1L << i) - 1L, getMaxNanos());
+                }
+            }
+            return getMaxNanos();
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + getCount() + ", p50=" + getPercentileNanos(50.0) + "ns, p99=" + getPercentileNanos(99.0)
+                    + "ns, max=" + getMaxNanos() + "ns";
+        }
+    }
+
+    /**
+     * Lock recording the statistics of its key.
+     */
+    final class InstrumentedLock extends DelegatingLock {
+        private final Statistics statistics_;
+        /**
+         * Count of the write holds and the start of the outermost one. Written only by the write lock owner.
+         */
+        private int writeHolds_ = 0;
+        private long writeStart_ = 0L;
+
+        InstrumentedLock(K key, Manager.Lock delegate, Statistics statistics) {
+            super(key, delegate);
+            statistics_ = statistics;
+        }
+
+        private long startWait() {
+            statistics_.waiters_.increment();
+            return System.nanoTime();
+        }
+
+        private void endReadWait(long start, boolean acquired) {
+            final long now = System.nanoTime();
+            statistics_.waiters_.decrement();
+            statistics_.readWait_.record(now - start);
+            if (acquired) {
+                statistics_.readAcquires_.increment();
+            }
+        }
+
+        private void endWriteWait(long start, boolean acquired) {
+            final long now = System.nanoTime();
+            statistics_.waiters_.decrement();
+            statistics_.writeWait_.record(now - start);
+            if (acquired) {
+                statistics_.writeAcquires_.increment();
+                if (writeHolds_++ == 0) {
+                    writeStart_ = now;
+                }
+            }
+        }
+
+        private void endWriteHold() {
+            if (--writeHolds_ == 0) {
+                statistics_.writeHold_.record(System.nanoTime() - writeStart_);
+            }
+        }
+
+        @Override
+        public void lockRead() {
+            final long start = startWait();
+            boolean acquired = false;
+            try {
+                delegate_.lockRead();
+                acquired = true;
+            } finally {
+                endReadWait(start, acquired);
+            }
+        }
+
+        @Override
+        public void lockReadInterruptibly() throws InterruptedException {
+            final long start = startWait();
+            boolean acquired = false;
+            try {
+                delegate_.lockReadInterruptibly();
+                acquired = true;
+            } finally {
+                endReadWait(start, acquired);
+            }
+        }
+
+        @Override
+        public boolean tryLockRead(long timeout, TimeUnit unit) throws InterruptedException {
+            final long start = startWait();
+            boolean acquired = false;
+            try {
+                acquired = delegate_.tryLockRead(timeout, unit);
+                return acquired;
+            } finally {
+                endReadWait(start, acquired);
+            }
+        }
+
+        @Override
+        public void lockWrite() {
+            final long start = startWait();
+            boolean acquired = false;
+            try {
+                delegate_.lockWrite();
+                acquired = true;
+            } finally {
+                endWriteWait(start, acquired);
+            }
+        }
+
+        @Override
+        public void lockWriteInterruptibly() throws InterruptedException {
+            final long start = startWait();
+            boolean acquired = false;
+            try {
+                delegate_.lockWriteInterruptibly();
+                acquired = true;
+            } finally {
+                endWriteWait(start, acquired);
+            }
+        }
+
+        @Override
+        public boolean tryLockWrite(long timeout, TimeUnit unit) throws InterruptedException {
+            final long start = startWait();
+            boolean acquired = false;
+            try {
+                acquired = delegate_.tryLockWrite(timeout, unit);
+                return acquired;
+            } finally {
+                endWriteWait(start, acquired);
+            }
+        }
+
+        @Override
+        public void unlockWrite() {
+            endWriteHold();
+            delegate_.unlockWrite();
+        }
+
+        @Override
+        public void upgradeLock() {
+            statistics_.upgrades_.increment();
+            final long start = startWait();
+            boolean acquired = false;
+            try {
+                delegate_.upgradeLock();
+                acquired = true;
+            } finally {
+                endWriteWait(start, acquired);
+            }
+        }
+
+        @Override
+        public boolean tryUpgradeLock(long timeout, TimeUnit unit) throws InterruptedException {
+            statistics_.upgrades_.increment();
+            final long start = startWait();
+            boolean acquired = false;
+            try {
+                acquired = delegate_.tryUpgradeLock(timeout, unit);
+                return acquired;
+            } finally {
+                endWriteWait(start, acquired);
+            }
+        }
+
+        @Override
+        public void downgradeLock() {
+            endWriteHold();
+            delegate_.downgradeLock();
+        }
+
+        @Override
+        public void lockUpgradableRead() {
+            final long start = startWait();
+            boolean acquired = false;
+            try {
+                delegate_.lockUpgradableRead();
+                acquired = true;
+            } finally {
+                endReadWait(start, acquired);
+            }
+        }
+
+        @Override
+        public boolean tryLockUpgradableRead(long timeout, TimeUnit unit) throws InterruptedException {
+            final long start = startWait();
+            boolean acquired = false;
+            try {
+                acquired = delegate_.tryLockUpgradableRead(timeout, unit);
+                return acquired;
+            } finally {
+                endReadWait(start, acquired);
+            }
+        }
+
+        @Override
+        public boolean upgradeUpgradableRead() {
+            statistics_.upgrades_.increment();
+            final long start = startWait();
+            boolean acquired = false;
+            try {
+                final boolean atomic = delegate_.upgradeUpgradableRead();
+                acquired = true;
+                return atomic;
+            } finally {
+                endWriteWait(start, acquired);
+            }
+        }
+
+        @Override
+        public void downgradeToUpgradableRead() {
+            endWriteHold();
+            delegate_.downgradeToUpgradableRead();
+        }
+    }
+
+}
@@ -19,6 +19,7 @@ package com.devives.commons.manager.lock;
 import com.devives.commons.manager.Manager;
 
 import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@link Manager.LockSource} implementation that performs no synchronization.
@@ -67,6 +68,26 @@ public final class NoopLockSource<K> implements Manager.LockSource<K>, Serializa
 
         }
 
+        @Override
+        public void lockReadInterruptibly() {
+
+        }
+
+        @Override
+        public boolean tryLockRead(long timeout, TimeUnit unit) {
+            return true;
+        }
+
+        @Override
+        public void lockWriteInterruptibly() {
+
+        }
+
+        @Override
+        public boolean tryLockWrite(long timeout, TimeUnit unit) {
+            return true;
+        }
+
         @Override
         public void upgradeLock() {
 
@@ -19,6 +19,8 @@ package com.devives.commons.manager.lock;
 import com.devives.commons.manager.Manager;
 
 import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -42,11 +44,26 @@ public final class RWLockSource<K> extends AbstractLockSource<K> implements Seri
      *             <p>
      *             – {@code false} uses a non-fair policy that typically provides better (8-10x manager operations) throughput ,
      *             but under high contention can indefinitely delay write operations such as object replacement, stop, and removal.
+     * @see WriterPreferringLockSource
      */
     public RWLockSource(boolean fair) {
         fair_ = fair;
     }
 
+    /**
+     * Creates a lock source backed by {@link ReentrantReadWriteLock}, which keeps released locks for reuse.
+     * <p>
+     * Repeated access to the same key does not allocate a lock and does not write to the lock map.
+     *
+     * @param fair         see {@link #RWLockSource(boolean)}.
+     * @param maxIdleLocks the count of locks, above which idle locks are reclaimed,
+     *                     see {@link AbstractLockSource#AbstractLockSource(int)}.
+     */
+    public RWLockSource(boolean fair, int maxIdleLocks) {
+        super(maxIdleLocks);
+        fair_ = fair;
+    }
+
     @Override
     protected <E extends Manager.Lock> E doAcquireLock() {
         return (E) new RWLock(fair_);
@@ -54,9 +71,14 @@ public final class RWLockSource<K> extends AbstractLockSource<K> implements Seri
 
     /**
      * Per-key read-write lock implementation used by {@link RWLockSource}.
+     * <p>
+     * The write lock is taken only by the holder of the intent lock. The holder of the upgradable read lock holds
+     * the intent lock together with the read lock, so no writer can get in between the release of the read lock
+     * and the acquisition of the write lock, and {@link #upgradeUpgradableRead()} is atomic.
      */
     final class RWLock extends AbstractLock {
         private final ReentrantReadWriteLock readWriteLock_;
+        private final ReentrantLock intentLock_;
 
         /**
          * @param fair {@code true} favors predictable scheduling and lowers the probability of write starvation;
@@ -64,6 +86,7 @@ public final class RWLockSource<K> extends AbstractLockSource<K> implements Seri
          */
         protected RWLock(boolean fair) {
             readWriteLock_ = new ReentrantReadWriteLock(fair);
+            intentLock_ = new ReentrantLock(fair);
         }
 
         @Override
@@ -78,22 +101,111 @@ public final class RWLockSource<K> extends AbstractLockSource<K> implements Seri
 
         @Override
         public void lockWrite() {
+            intentLock_.lock();
             readWriteLock_.writeLock().lock();
         }
 
         @Override
         public void unlockWrite() {
             readWriteLock_.writeLock().unlock();
+            intentLock_.unlock();
+        }
+
+        @Override
+        public void lockReadInterruptibly() throws InterruptedException {
+            readWriteLock_.readLock().lockInterruptibly();
+        }
+
+        @Override
+        public boolean tryLockRead(long timeout, TimeUnit unit) throws InterruptedException {
+            return readWriteLock_.readLock().tryLock(timeout, unit);
+        }
+
+        @Override
+        public void lockWriteInterruptibly() throws InterruptedException {
+            intentLock_.lockInterruptibly();
+            try {
+                readWriteLock_.writeLock().lockInterruptibly();
+            } catch (InterruptedException e) {
+                intentLock_.unlock();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean tryLockWrite(long timeout, TimeUnit unit) throws InterruptedException {
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+            if (!intentLock_.tryLock(timeout, unit)) {
+                return false;
+            }
+            boolean locked = false;
+            try {
+                locked = readWriteLock_.writeLock().tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                return locked;
+            } finally {
+                if (!locked) {
+                    intentLock_.unlock();
+                }
+            }
         }
 
         @Override
         public void upgradeLock() {
             readWriteLock_.readLock().unlock();
-            readWriteLock_.writeLock().lock();
+            lockWrite();
+        }
+
+        @Override
+        public boolean tryUpgradeLock(long timeout, TimeUnit unit) throws InterruptedException {
+            readWriteLock_.readLock().unlock();
+            return tryLockWrite(timeout, unit);
         }
 
         @Override
         public void downgradeLock() {
+            readWriteLock_.readLock().lock();
+            unlockWrite();
+        }
+
+        @Override
+        public void lockUpgradableRead() {
+            intentLock_.lock();
+            readWriteLock_.readLock().lock();
+        }
+
+        @Override
+        public boolean tryLockUpgradableRead(long timeout, TimeUnit unit) throws InterruptedException {
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+            if (!intentLock_.tryLock(timeout, unit)) {
+                return false;
+            }
+            boolean locked = false;
+            try {
+                locked = readWriteLock_.readLock().tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                return locked;
+            } finally {
+                if (!locked) {
+                    intentLock_.unlock();
+                }
+            }
+        }
+
+        @Override
+        public void unlockUpgradableRead() {
+            readWriteLock_.readLock().unlock();
+            intentLock_.unlock();
+        }
+
+        @Override
+        public boolean upgradeUpgradableRead() {
+            // The intent lock stays held, other writers and upgraders wait for it.
+            readWriteLock_.readLock().unlock();
+            readWriteLock_.writeLock().lock();
+            return true;
+        }
+
+        @Override
+        public void downgradeToUpgradableRead() {
             readWriteLock_.readLock().lock();
             readWriteLock_.writeLock().unlock();
         }
@@ -0,0 +1,322 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager.lock;
+
+import com.devives.commons.manager.Manager;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Lock source with read-biased locks for keys which are read far more often than written.
+ * <p>
+ * The locks follow the BRAVO scheme. While a lock is read-biased, a reader does not touch the shared reader counter of
+ * the underlying {@link ReentrantReadWriteLock}. It publishes itself in a slot of a global table of visible readers,
+ * chosen by the hash of the reader thread and the lock, so the readers of one key write to different cache lines.
+ * A writer acquires the underlying write lock, revokes the bias and waits until the slots of the lock are drained.
+ * After a revocation the bias is inhibited for a time proportional to the revocation cost, so write-heavy keys
+ * fall back to the plain read-write lock.
+ * <p>
+ * A thread tracks the depth of its biased read holds, so a reentrant read of a thread holding the biased read lock stays
+ * on the biased path: it must not wait for the underlying read lock, which may be held by a writer waiting for the
+ * slot of the same thread. Reads of a thread whose slot is taken by another reader use the underlying read lock.
+ * <p>
+ * The manager acquires a lock from the source for each access to a key under lock. Create the source with a count
+ * of idle locks ({@link #ReadBiasedLockSource(int)}), so the lock of a key, together with its bias state, is reused
+ * instead of being allocated on each acquisition. The acquisition of a kept lock still increments its usage count.
+ *
+ * @param <K> key type
+ */
+public final class ReadBiasedLockSource<K> extends AbstractLockSource<K> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Count of slots in the table of visible readers, a power of two.
+     */
+    private static final int VISIBLE_READERS_SIZE = 4096;
+    /**
+     * The table of visible readers shared by all read-biased locks. A slot holds the lock read by a thread.
+     */
+    private static final AtomicReferenceArray<Object> VISIBLE_READERS = new AtomicReferenceArray<>(VISIBLE_READERS_SIZE);
+    /**
+     * The bias is inhibited for this multiple of the revocation time.
+     */
+    private static final int INHIBIT_MULTIPLIER = 9;
+    /**
+     * The biased read holds of the current thread.
+     */
+    private static final ThreadLocal<BiasedHolds> BIASED_HOLDS = ThreadLocal.withInitial(BiasedHolds::new);
+
+    /**
+     * Creates a lock source, which reclaims a lock on its last release.
+     */
+    public ReadBiasedLockSource() {
+    }
+
+    /**
+     * Creates a lock source, which keeps released locks for reuse.
+     * <p>
+     * Repeated access to the same key does not allocate a lock, and the bias of the lock survives its release.
+     *
+     * @param maxIdleLocks the count of locks, above which idle locks are reclaimed,
+     *                     see {@link AbstractLockSource#AbstractLockSource(int)}.
+     */
+    public ReadBiasedLockSource(int maxIdleLocks) {
+        super(maxIdleLocks);
+    }
+
+    @Override
+    protected <E extends Manager.Lock> E doAcquireLock() {
+        return (E) new ReadBiasedLock();
+    }
+
+    /**
+     * Per-key read-biased lock implementation used by {@link ReadBiasedLockSource}.
+     */
+    final class ReadBiasedLock extends AbstractLock {
+        private final ReentrantReadWriteLock readWriteLock_ = new ReentrantReadWriteLock(false);
+        private final int hash_ = System.identityHashCode(this) * 0x9E3779B9;
+        private volatile boolean readBias_ = true;
+        /**
+         * Written under the write lock, read under the read lock.
+         */
+        private long inhibitUntil_ = 0L;
+
+        private int slot() {
+            final long threadHash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+            return ((int) (threadHash >>> 32) ^ hash_) & (VISIBLE_READERS_SIZE - 1);
+        }
+
+        boolean isReadBiased() {
+            return readBias_;
+        }
+
+        @Override
+        public void lockRead() {
+            if (tryLockReadBiased()) {
+                return;
+            }
+            readWriteLock_.readLock().lock();
+            restoreBias();
+        }
+
+        @Override
+        public void lockReadInterruptibly() throws InterruptedException {
+            if (tryLockReadBiased()) {
+                return;
+            }
+            readWriteLock_.readLock().lockInterruptibly();
+            restoreBias();
+        }
+
+        @Override
+        public boolean tryLockRead(long timeout, TimeUnit unit) throws InterruptedException {
+            if (tryLockReadBiased()) {
+                return true;
+            }
+            if (!readWriteLock_.readLock().tryLock(timeout, unit)) {
+                return false;
+            }
+            restoreBias();
+            return true;
+        }
+
+        private boolean tryLockReadBiased() {
+            final BiasedHolds holds = BIASED_HOLDS.get();
+            if (holds.increment(this)) {
+                // Reentrant read: a revoking writer waits for the slot of this thread, the read must not wait for it.
+                return true;
+            }
+            if (readBias_) {
+                final int slot = slot();
+                if (VISIBLE_READERS.compareAndSet(slot, null, this)) {
+                    // Re-check after publishing: a writer revokes the bias before it scans the slots.
+                    if (readBias_) {
+                        holds.add(this);
+                        return true;
+                    }
+                    VISIBLE_READERS.set(slot, null);
+                }
+            }
+            return false;
+        }
+
+        private void restoreBias() {
+            // The write lock owner reads through the slow path too, it must not restore the bias.
+            if (!readBias_ && !readWriteLock_.isWriteLocked() && System.nanoTime() - inhibitUntil_ >= 0) {
+                readBias_ = true;
+            }
+        }
+
+        @Override
+        public void unlockRead() {
+            final int biasedHolds = BIASED_HOLDS.get().decrement(this);
+            if (biasedHolds == 0) {
+                VISIBLE_READERS.set(slot(), null);
+            } else if (biasedHolds < 0) {
+                // The read holds of the underlying lock are checked by the lock itself.
+                readWriteLock_.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void lockWrite() {
+            readWriteLock_.writeLock().lock();
+            if (readBias_) {
+                revokeBias();
+            }
+        }
+
+        @Override
+        public void lockWriteInterruptibly() throws InterruptedException {
+            readWriteLock_.writeLock().lockInterruptibly();
+            if (readBias_) {
+                revokeBias();
+            }
+        }
+
+        @Override
+        public boolean tryLockWrite(long timeout, TimeUnit unit) throws InterruptedException {
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+            if (!readWriteLock_.writeLock().tryLock(timeout, unit)) {
+                return false;
+            }
+            if (readBias_ && !revokeBias(deadline)) {
+                readWriteLock_.writeLock().unlock();
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void unlockWrite() {
+            readWriteLock_.writeLock().unlock();
+        }
+
+        @Override
+        public void upgradeLock() {
+            unlockRead();
+            lockWrite();
+        }
+
+        @Override
+        public boolean tryUpgradeLock(long timeout, TimeUnit unit) throws InterruptedException {
+            unlockRead();
+            return tryLockWrite(timeout, unit);
+        }
+
+        @Override
+        public void downgradeLock() {
+            readWriteLock_.readLock().lock();
+            readWriteLock_.writeLock().unlock();
+        }
+
+        private void revokeBias() {
+            readBias_ = false;
+            final long start = System.nanoTime();
+            for (int i = 0; i < VISIBLE_READERS_SIZE; i++) {
+                while (VISIBLE_READERS.get(i) == this) {
+                    Thread.yield();
+                }
+            }
+            final long now = System.nanoTime();
+            inhibitUntil_ = now + (now - start) * INHIBIT_MULTIPLIER;
+        }
+
+        /**
+         * Revokes the bias, waiting for the fast readers until the deadline.
+         *
+         * @return {@code false} if the fast readers have not left in time, the bias is restored then.
+         */
+        private boolean revokeBias(long deadline) {
+            readBias_ = false;
+            final long start = System.nanoTime();
+            for (int i = 0; i < VISIBLE_READERS_SIZE; i++) {
+                while (VISIBLE_READERS.get(i) == this) {
+                    if (System.nanoTime() - deadline >= 0) {
+                        readBias_ = true;
+                        return false;
+                    }
+                    Thread.yield();
+                }
+            }
+            final long now = System.nanoTime();
+            inhibitUntil_ = now + (now - start) * INHIBIT_MULTIPLIER;
+            return true;
+        }
+    }
+
+    /**
+     * The biased read holds of a thread: the locks, whose slots are taken by the thread, and the depth of the holds.
+     * A thread holds a few locks at a time, the arrays are scanned linearly.
+     */
+    private static final class BiasedHolds {
+        private Object[] locks_ = new Object[4];
+        private int[] depths_ = new int[4];
+        private int size_ = 0;
+
+        /**
+         * Increments the depth of the biased hold of the lock.
+         *
+         * @return {@code false} if the thread does not hold the biased read lock.
+         */
+        boolean increment(Object lock) {
+            for (int i = 0; i < size_; i++) {
+                if (locks_[i] == lock) {
+                    depths_[i]++;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void add(Object lock) {
+            if (size_ == locks_.length) {
+                locks_ = Arrays.copyOf(locks_, size_ * 2);
+                depths_ = Arrays.copyOf(depths_, size_ * 2);
+            }
+            locks_[size_] = lock;
+            depths_[size_] = 1;
+            size_++;
+        }
+
+        /**
+         * Decrements the depth of the biased hold of the lock, the hold of depth {@code 0} is forgotten.
+         *
+         * @return the remaining depth, or {@code -1} if the thread does not hold the biased read lock.
+         */
+        int decrement(Object lock) {
+            for (int i = 0; i < size_; i++) {
+                if (locks_[i] == lock) {
+                    final int depth = --depths_[i];
+                    if (depth == 0) {
+                        size_--;
+                        locks_[i] = locks_[size_];
+                        depths_[i] = depths_[size_];
+                        locks_[size_] = null;
+                    }
+                    return depth;
+                }
+            }
+            return -1;
+        }
+    }
+
+}
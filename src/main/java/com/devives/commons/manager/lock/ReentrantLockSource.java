@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager.lock;
+
+import com.devives.commons.manager.Manager;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock source backed by {@link ReentrantLock} with one lock instance per manager key.
+ * <p>
+ * The semantics match {@link SyncLockSource}: read and write access to the same key are serialized, and the owning
+ * thread may re-enter the lock, e.g. in the recursive access to the key from
+ * {@link com.devives.commons.manager.ManagedAdapter#startObject(Object)}. Unlike monitors, a virtual thread waiting for
+ * the lock is unmounted and does not pin its carrier thread, so this source is preferred for virtual threads.
+ *
+ * @param <K> key type
+ */
+public final class ReentrantLockSource<K> extends AbstractLockSource<K> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final boolean fair_;
+
+    /**
+     * Creates a lock source with non-fair locks.
+     */
+    public ReentrantLockSource() {
+        this(false);
+    }
+
+    /**
+     * Creates a lock source.
+     *
+     * @param fair the fairness policy of the locks, see {@link ReentrantLock#ReentrantLock(boolean)}.
+     */
+    public ReentrantLockSource(boolean fair) {
+        fair_ = fair;
+    }
+
+    @Override
+    protected <E extends Manager.Lock> E doAcquireLock() {
+        return (E) new ExclusiveLock(fair_);
+    }
+
+    /**
+     * Per-key reentrant lock that treats read and write operations identically.
+     */
+    final class ExclusiveLock extends AbstractLock {
+        private final ReentrantLock lock_;
+
+        ExclusiveLock(boolean fair) {
+            lock_ = new ReentrantLock(fair);
+        }
+
+        @Override
+        public void lockRead() {
+            lock_.lock();
+        }
+
+        @Override
+        public void unlockRead() {
+            lock_.unlock();
+        }
+
+        @Override
+        public void lockWrite() {
+            lock_.lock();
+        }
+
+        @Override
+        public void unlockWrite() {
+            lock_.unlock();
+        }
+
+        @Override
+        public void lockReadInterruptibly() throws InterruptedException {
+            lock_.lockInterruptibly();
+        }
+
+        @Override
+        public boolean tryLockRead(long timeout, TimeUnit unit) throws InterruptedException {
+            return lock_.tryLock(timeout, unit);
+        }
+
+        @Override
+        public void lockWriteInterruptibly() throws InterruptedException {
+            lock_.lockInterruptibly();
+        }
+
+        @Override
+        public boolean tryLockWrite(long timeout, TimeUnit unit) throws InterruptedException {
+            return lock_.tryLock(timeout, unit);
+        }
+
+        @Override
+        public void upgradeLock() {
+            lock_.lock();
+        }
+
+        @Override
+        public void downgradeLock() {
+            lock_.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,234 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager.lock;
+
+import com.devives.commons.manager.Manager;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Lock source backed by {@link StampedLock} with one lock instance per manager key.
+ * <p>
+ * In addition to the read and write modes of {@link RWLockSource}, the locks support optimistic reading
+ * ({@link Manager.Lock#tryOptimisticRead()}). A manager reads an already started object under a validated stamp
+ * and does not write anything to the lock state, so concurrent hits on the same key do not contend with each other.
+ * The read lock is taken only when the validation fails.
+ * <p>
+ * A lock is looked up in the lock map on each acquisition. To keep the optimistic read path free of writes to shared
+ * memory other than the usage count of the lock, create the source with a count of idle locks
+ * ({@link #StampedLockSource(int)}): the lock of a key is then reused instead of being allocated and put to the map
+ * on each acquisition.
+ * <p>
+ * {@link StampedLock} is not reentrant. The write lock owner is tracked to allow the recursive access to the key from
+ * {@link com.devives.commons.manager.ManagedAdapter#startObject(Object)} and
+ * {@link com.devives.commons.manager.ManagedAdapter#stopObject(Object)}. The read lock is not reentrant: a thread
+ * holding the read lock of a key must not take the read or the write lock of the same key again, such acquisition
+ * blocks behind a queued writer or behind the own read hold. Use {@link RWLockSource}, if the callbacks of the
+ * manager access the key they are called for under the read lock.
+ *
+ * @param <K> key type
+ */
+public final class StampedLockSource<K> extends AbstractLockSource<K> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a lock source, which reclaims a lock on its last release.
+     */
+    public StampedLockSource() {
+    }
+
+    /**
+     * Creates a lock source, which keeps released locks for reuse.
+     * <p>
+     * Repeated access to the same key does not allocate a lock and does not write to the lock map.
+     *
+     * @param maxIdleLocks the count of locks, above which idle locks are reclaimed,
+     *                     see {@link AbstractLockSource#AbstractLockSource(int)}.
+     */
+    public StampedLockSource(int maxIdleLocks) {
+        super(maxIdleLocks);
+    }
+
+    @Override
+    protected <E extends Manager.Lock> E doAcquireLock() {
+        return (E) new StampedRWLock();
+    }
+
+    /**
+     * Per-key stamped lock implementation used by {@link StampedLockSource}.
+     */
+    final class StampedRWLock extends AbstractLock {
+        private final StampedLock stampedLock_ = new StampedLock();
+        /**
+         * The thread holding the write lock. Written only by the owner while the write lock is held.
+         */
+        private volatile Thread writeOwner_ = null;
+        /**
+         * Count of nested read and write holds of the write lock owner.
+         */
+        private int ownerHolds_ = 0;
+        private long writeStamp_ = 0L;
+
+        private boolean isWriteOwner() {
+            return writeOwner_ == Thread.currentThread();
+        }
+
+        private void setWriteOwner(long writeStamp) {
+            writeStamp_ = writeStamp;
+            ownerHolds_ = 1;
+            writeOwner_ = Thread.currentThread();
+        }
+
+        @Override
+        public long tryOptimisticRead() {
+            return stampedLock_.tryOptimisticRead();
+        }
+
+        @Override
+        public boolean validate(long stamp) {
+            return stamp != 0L && stampedLock_.validate(stamp);
+        }
+
+        @Override
+        public void lockRead() {
+            if (isWriteOwner()) {
+                ownerHolds_++;
+            } else {
+                stampedLock_.readLock();
+            }
+        }
+
+        @Override
+        public void unlockRead() {
+            if (isWriteOwner()) {
+                ownerHolds_--;
+            } else if (!stampedLock_.tryUnlockRead()) {
+                throw new IllegalMonitorStateException();
+            }
+        }
+
+        @Override
+        public void lockWrite() {
+            if (isWriteOwner()) {
+                ownerHolds_++;
+            } else {
+                setWriteOwner(stampedLock_.writeLock());
+            }
+        }
+
+        @Override
+        public void unlockWrite() {
+            if (!isWriteOwner()) {
+                throw new IllegalMonitorStateException();
+            }
+            if (--ownerHolds_ == 0) {
+                writeOwner_ = null;
+                stampedLock_.unlockWrite(writeStamp_);
+            }
+        }
+
+        @Override
+        public void lockReadInterruptibly() throws InterruptedException {
+            if (isWriteOwner()) {
+                ownerHolds_++;
+            } else {
+                stampedLock_.readLockInterruptibly();
+            }
+        }
+
+        @Override
+        public boolean tryLockRead(long timeout, TimeUnit unit) throws InterruptedException {
+            if (isWriteOwner()) {
+                ownerHolds_++;
+                return true;
+            }
+            return stampedLock_.tryReadLock(timeout, unit) != 0L;
+        }
+
+        @Override
+        public void lockWriteInterruptibly() throws InterruptedException {
+            if (isWriteOwner()) {
+                ownerHolds_++;
+            } else {
+                setWriteOwner(stampedLock_.writeLockInterruptibly());
+            }
+        }
+
+        @Override
+        public boolean tryLockWrite(long timeout, TimeUnit unit) throws InterruptedException {
+            if (isWriteOwner()) {
+                ownerHolds_++;
+                return true;
+            }
+            final long stamp = stampedLock_.tryWriteLock(timeout, unit);
+            if (stamp == 0L) {
+                return false;
+            }
+            setWriteOwner(stamp);
+            return true;
+        }
+
+        @Override
+        public void upgradeLock() {
+            if (isWriteOwner()) {
+                ownerHolds_++;
+            } else {
+                // Like RWLockSource, the read lock is released before the write lock is taken.
+                // The caller must re-check the state after the upgrade.
+                if (!stampedLock_.tryUnlockRead()) {
+                    throw new IllegalMonitorStateException();
+                }
+                setWriteOwner(stampedLock_.writeLock());
+            }
+        }
+
+        @Override
+        public boolean tryUpgradeLock(long timeout, TimeUnit unit) throws InterruptedException {
+            if (isWriteOwner()) {
+                ownerHolds_++;
+                return true;
+            }
+            if (!stampedLock_.tryUnlockRead()) {
+                throw new IllegalMonitorStateException();
+            }
+            final long stamp = stampedLock_.tryWriteLock(timeout, unit);
+            if (stamp == 0L) {
+                return false;
+            }
+            setWriteOwner(stamp);
+            return true;
+        }
+
+        @Override
+        public void downgradeLock() {
+            if (!isWriteOwner()) {
+                throw new IllegalMonitorStateException();
+            }
+            if (ownerHolds_ > 1) {
+                ownerHolds_--;
+            } else {
+                ownerHolds_ = 0;
+                writeOwner_ = null;
+                // Atomic downgrade, no other writer can get in between.
+                stampedLock_.tryConvertToReadLock(writeStamp_);
+            }
+        }
+    }
+
+}
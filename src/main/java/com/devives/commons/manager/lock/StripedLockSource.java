@@ -0,0 +1,182 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager.lock;
+
+import com.devives.commons.manager.Manager;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Lock source with a fixed number of preallocated read-write locks (stripes).
+ * <p>
+ * A key is mapped onto a stripe by its {@link Object#hashCode()}, so {@link #acquire(Object)} and
+ * {@link #release(Object)} are an array index without any map mutation or allocation.
+ * <p>
+ * <strong>Shared stripes.</strong> Keys that fall on the same stripe share one lock:
+ * <ul>
+ *     <li>operations on such keys are serialized as if they were one key, e.g. a slow
+ *     {@link com.devives.commons.manager.ManagedAdapter#startObject(Object)} of one key blocks writers and readers of
+ *     all keys of the stripe;</li>
+ *     <li>recursive access of the same thread to another key of the held stripe (a factory or adapter of key A calls
+ *     the manager for key B) is safe: the stripe locks are reentrant, and the write lock owner may read, upgrade
+ *     and downgrade the stripe again;</li>
+ *     <li>recursive access across threads is not. If the factory of key A (holding stripe S1) waits for key C on
+ *     stripe S2, while the factory of key D (holding stripe S2) waits for key E on stripe S1, both threads hang, although
+ *     the keys do not depend on each other. Increase the stripe count or use a per-key lock source
+ *     ({@link RWLockSource}) when factories wait for objects created on other threads.</li>
+ * </ul>
+ * <p>
+ * The stripe locks have no upgradable read mode: {@link Manager.Lock#upgradeUpgradableRead()} is not atomic and
+ * returns {@code false}, so the manager re-reads the entry under the write lock.
+ *
+ * @param <K> key type
+ */
+public final class StripedLockSource<K> implements Manager.LockSource<K>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final StripeLock[] stripes_;
+    private final int mask_;
+
+    /**
+     * Creates a lock source with non-fair stripe locks.
+     *
+     * @param stripes the minimal count of stripes, rounded up to a power of two.
+     */
+    public StripedLockSource(int stripes) {
+        this(stripes, false);
+    }
+
+    /**
+     * Creates a lock source.
+     *
+     * @param stripes the minimal count of stripes, rounded up to a power of two.
+     * @param fair    the fairness policy of the stripe locks, see {@link RWLockSource#RWLockSource(boolean)}.
+     */
+    public StripedLockSource(int stripes, boolean fair) {
+        if (stripes <= 0 || stripes > (1 << 30)) {
+            throw new IllegalArgumentException("The count of stripes must be in range [1, 2^30]: " + stripes);
+        }
+        final int size = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        stripes_ = new StripeLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes_[i] = new StripeLock(fair);
+        }
+        mask_ = size - 1;
+    }
+
+    /**
+     * @return the count of stripes.
+     */
+    public int getStripeCount() {
+        return stripes_.length;
+    }
+
+    @Override
+    public Manager.Lock acquire(final K key) {
+        return stripes_[indexFor(key)];
+    }
+
+    @Override
+    public void release(final K key) {
+        // Do nothing. Stripes are never released.
+    }
+
+    /**
+     * Returns the index of the stripe for the key.
+     *
+     * @param key key
+     * @return index of the stripe.
+     */
+    int indexFor(final K key) {
+        // Spread higher bits downward like ConcurrentHashMap does, because the mask uses lower bits only.
+        final int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask_;
+    }
+
+    /**
+     * Stripe lock implementation used by {@link StripedLockSource}.
+     * <p>
+     * The stripe lock does not implement the upgradable read mode and inherits the defaults of {@link Manager.Lock}:
+     * {@link #lockUpgradableRead()} takes the plain read lock, so several threads may hold it at once, and
+     * {@link #upgradeUpgradableRead()} releases the read lock before taking the write lock and returns {@code false}.
+     * A manager that uses this source therefore re-reads the state after the upgrade, e.g. the entry of
+     * {@code computeIfAbsent} is looked up again under the write lock. Use {@link RWLockSource} for the atomic upgrade.
+     */
+    static final class StripeLock implements Manager.Lock, Serializable {
+        private static final long serialVersionUID = 1L;
+        private final ReentrantReadWriteLock readWriteLock_;
+
+        StripeLock(boolean fair) {
+            readWriteLock_ = new ReentrantReadWriteLock(fair);
+        }
+
+        @Override
+        public void lockRead() {
+            readWriteLock_.readLock().lock();
+        }
+
+        @Override
+        public void unlockRead() {
+            readWriteLock_.readLock().unlock();
+        }
+
+        @Override
+        public void lockWrite() {
+            readWriteLock_.writeLock().lock();
+        }
+
+        @Override
+        public void unlockWrite() {
+            readWriteLock_.writeLock().unlock();
+        }
+
+        @Override
+        public void lockReadInterruptibly() throws InterruptedException {
+            readWriteLock_.readLock().lockInterruptibly();
+        }
+
+        @Override
+        public boolean tryLockRead(long timeout, TimeUnit unit) throws InterruptedException {
+            return readWriteLock_.readLock().tryLock(timeout, unit);
+        }
+
+        @Override
+        public void lockWriteInterruptibly() throws InterruptedException {
+            readWriteLock_.writeLock().lockInterruptibly();
+        }
+
+        @Override
+        public boolean tryLockWrite(long timeout, TimeUnit unit) throws InterruptedException {
+            return readWriteLock_.writeLock().tryLock(timeout, unit);
+        }
+
+        @Override
+        public void upgradeLock() {
+            readWriteLock_.readLock().unlock();
+            readWriteLock_.writeLock().lock();
+        }
+
+        @Override
+        public void downgradeLock() {
+            readWriteLock_.readLock().lock();
+            readWriteLock_.writeLock().unlock();
+        }
+    }
+
+}
@@ -20,12 +20,15 @@ import com.devives.commons.lang.ExceptionUtils;
 import com.devives.commons.manager.Manager;
 
 import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Lock source based on Java monitors and {@code wait}/{@code notifyAll}.
  * <p>
  * This implementation serializes both read and write access for the same key and supports reentrancy
  * only for the owning thread. It is simpler than {@link RWLockSource}, but does not allow concurrent readers.
+ * <p>
+ * A virtual thread waiting for the lock pins its carrier thread. Use {@link ReentrantLockSource} with virtual threads.
  *
  * @param <K> key type
  */
@@ -44,24 +47,43 @@ public final class SyncLockSource<K> extends AbstractLockSource<K> implements Se
         private int locked_ = 0;
         private long threadId_ = 0;
 
-        private synchronized void lock() {
-            final Thread currentThread = Thread.currentThread();
+        private void lock() {
             try {
-                long curThreadId = currentThread.getId();
-                while (locked_ > 0 && curThreadId != threadId_) {
-                    this.wait();
-                }
-                threadId_ = curThreadId;
-                locked_++;
+                lockInterruptibly();
             } catch (InterruptedException e) {
                 // Восстанавливаю флаг Thread.currentThread().isInterrupted()
                 // На случай, если кто-то обработает InterruptedException как Exception и, не обратив внимание
                 // на тип InterruptedException продолжит выполнение программы в текущем потоке.
-                currentThread.interrupt();
+                Thread.currentThread().interrupt();
                 throw ExceptionUtils.asUnchecked(e);
             }
         }
 
+        private synchronized void lockInterruptibly() throws InterruptedException {
+            long curThreadId = Thread.currentThread().getId();
+            while (locked_ > 0 && curThreadId != threadId_) {
+                this.wait();
+            }
+            threadId_ = curThreadId;
+            locked_++;
+        }
+
+        private synchronized boolean tryLock(long timeout, TimeUnit unit) throws InterruptedException {
+            long curThreadId = Thread.currentThread().getId();
+            long remaining = unit.toNanos(timeout);
+            final long deadline = System.nanoTime() + remaining;
+            while (locked_ > 0 && curThreadId != threadId_) {
+                if (remaining <= 0L) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                remaining = deadline - System.nanoTime();
+            }
+            threadId_ = curThreadId;
+            locked_++;
+            return true;
+        }
+
         private synchronized void unlock() {
             if (--locked_ == 0) {
                 threadId_ = 0;
@@ -92,6 +114,26 @@ public final class SyncLockSource<K> extends AbstractLockSource<K> implements Se
             unlock();
         }
 
+        @Override
+        public void lockReadInterruptibly() throws InterruptedException {
+            lockInterruptibly();
+        }
+
+        @Override
+        public boolean tryLockRead(long timeout, TimeUnit unit) throws InterruptedException {
+            return tryLock(timeout, unit);
+        }
+
+        @Override
+        public void lockWriteInterruptibly() throws InterruptedException {
+            lockInterruptibly();
+        }
+
+        @Override
+        public boolean tryLockWrite(long timeout, TimeUnit unit) throws InterruptedException {
+            return tryLock(timeout, unit);
+        }
+
         @Override
         public void upgradeLock() {
             lock();
@@ -0,0 +1,460 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager.lock;
+
+import com.devives.commons.lang.ExceptionUtils;
+import com.devives.commons.manager.Manager;
+import com.devives.commons.manager.ManagerException;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lock source decorator, which watches for the write locks held longer than a threshold.
+ * <p>
+ * The write lock of a key is held while its object is created and started in
+ * {@link com.devives.commons.manager.ManagedAdapter#startObject(Object)}, and while it is stopped. A hanging start or
+ * stop blocks every other caller of the key. The watchdog checks the holds by {@link #check()}, usually scheduled by
+ * {@link #start(ScheduledExecutorService)}, and reports each hold longer than the threshold to the {@link Listener}
+ * once, with the stack of the owning thread. The listener may alert, or fail the waiters of the key by
+ * {@link LongHeldLock#failWaiters()}, before the pool of the calling threads is exhausted.
+ * <p>
+ * The threads waiting for the read, upgradable read or write lock of a key, interruptibly or not, and for the upgrade
+ * of the read lock, wait in slices of {@link #POLL_MILLIS} ms, and check between the slices, whether the waiters of
+ * the key have been failed. A failed upgrade gives up the read lock of the thread: the following
+ * {@link Manager.Lock#unlockRead()} of the thread only ends its hold. The waiters of the timed tries and of
+ * {@link Manager.Lock#upgradeUpgradableRead()} are not failed.
+ * <p>
+ * A waiter gives up its place in the queue of the delegate lock after each slice and queues again at the tail. So
+ * a fair or writer-preferring delegate does not keep the order of the waiters of a watched key: a thread arriving
+ * later may get the lock first, and a waiting writer does not hold back the readers arriving during its wait.
+ *
+ * @param <K> key type
+ */
+public final class WatchdogLockSource<K> extends AbstractDelegatingLockSource<K> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The wait slice of the blocked threads.
+     */
+    public static final long POLL_MILLIS = 10L;
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(POLL_MILLIS);
+
+    private final long thresholdNanos_;
+    private final Listener<K> listener_;
+
+    /**
+     * Listener of the long held locks.
+     *
+     * @param <K> key type
+     */
+    @FunctionalInterface
+    public interface Listener<K> {
+        /**
+         * Called by {@link #check()} once for each write lock hold longer than the threshold.
+         *
+         * @param lock the long held lock.
+         */
+        void onLongHeld(LongHeldLock<K> lock);
+    }
+
+    /**
+     * Report of a write lock hold longer than the threshold.
+     *
+     * @param <K> key type
+     */
+    public interface LongHeldLock<K> {
+
+        K getKey();
+
+        Thread getOwner();
+
+        /**
+         * @return the stack of the owner at the time of the check.
+         */
+        StackTraceElement[] getOwnerStackTrace();
+
+        long getHeld(TimeUnit unit);
+
+        /**
+         * Fails the threads waiting for the lock and the threads coming for it, until the hold ends, with
+         * {@link ManagerException}. The cause of the exception carries the stack of the owner.
+         */
+        void failWaiters();
+    }
+
+    /**
+     * @param delegate  the source of the locks. The locks must support {@link Manager.Lock#tryLockRead(long, TimeUnit)},
+     *                  {@link Manager.Lock#tryLockWrite(long, TimeUnit)}, and, if used,
+     *                  {@link Manager.Lock#tryLockUpgradableRead(long, TimeUnit)} and
+     *                  {@link Manager.Lock#tryUpgradeLock(long, TimeUnit)}.
+     * @param threshold the duration of a write lock hold, after which it is reported.
+     * @param unit      the time unit of {@code threshold}.
+     * @param listener  the listener of the long held locks.
+     */
+    public WatchdogLockSource(Manager.LockSource<K> delegate, long threshold, TimeUnit unit, Listener<K> listener) {
+        super(delegate);
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("The threshold must be positive: " + threshold);
+        }
+        thresholdNanos_ = unit.toNanos(threshold);
+        listener_ = Objects.requireNonNull(listener, "The listener value is required.");
+    }
+
+    @Override
+    protected DelegatingLock newLock(K key, Manager.Lock delegate) {
+        return new WatchdogLock(key, delegate);
+    }
+
+    /**
+     * Schedules {@link #check()} at the rate of a half of the threshold.
+     *
+     * @param scheduler the scheduler running the checks.
+     * @return the future to cancel the checks.
+     */
+    public ScheduledFuture<?> start(ScheduledExecutorService scheduler) {
+        final long period = Math.max(thresholdNanos_ / 2, POLL_NANOS);
+        return scheduler.scheduleAtFixedRate(this::check, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Reports the write lock holds longer than the threshold, which have not been reported yet.
+     */
+    public void check() {
+        final long now = System.nanoTime();
+        for (Manager.Lock lock : map_.values()) {
+            final WatchdogLock watchdogLock = (WatchdogLock) lock;
+            final Hold hold = watchdogLock.hold_;
+            if (hold != null && now - hold.start_ >= thresholdNanos_ && !hold.reported_) {
+                hold.reported_ = true;
+                listener_.onLongHeld(new Report(watchdogLock, hold, now - hold.start_, hold.owner_.getStackTrace()));
+            }
+        }
+    }
+
+    private final class Report implements LongHeldLock<K> {
+        private final WatchdogLock lock_;
+        private final Hold hold_;
+        private final long heldNanos_;
+        private final StackTraceElement[] ownerStackTrace_;
+
+        Report(WatchdogLock lock, Hold hold, long heldNanos, StackTraceElement[] ownerStackTrace) {
+            lock_ = lock;
+            hold_ = hold;
+            heldNanos_ = heldNanos;
+            ownerStackTrace_ = ownerStackTrace;
+        }
+
+        @Override
+        public K getKey() {
+            return lock_.getKey();
+        }
+
+        @Override
+        public Thread getOwner() {
+            return hold_.owner_;
+        }
+
+        @Override
+        public StackTraceElement[] getOwnerStackTrace() {
+            return ownerStackTrace_.clone();
+        }
+
+        @Override
+        public long getHeld(TimeUnit unit) {
+            return unit.convert(heldNanos_, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void failWaiters() {
+            final Thread owner = hold_.owner_;
+            final Throwable ownerStack = new Throwable("The stack of the owner thread '" + owner.getName() + "'.");
+            ownerStack.setStackTrace(ownerStackTrace_);
+            // The failure belongs to the reported hold. If the hold has ended already, the waiters of the next hold
+            // do not see it.
+            hold_.failure_ = new ManagerException(String.format("The lock of the key '%s' is held by the thread '%s' for %d ms.",
+                    lock_.getKey(), owner.getName(), TimeUnit.NANOSECONDS.toMillis(heldNanos_)), ownerStack);
+        }
+    }
+
+    /**
+     * Lock mode of a waiter.
+     */
+    private enum Mode {
+        READ,
+        UPGRADABLE_READ,
+        WRITE
+    }
+
+    /**
+     * Write lock hold of one owner, from the outermost acquisition to the last release.
+     */
+    private static final class Hold {
+        private final Thread owner_;
+        private final long start_;
+        private volatile boolean reported_ = false;
+        private volatile ManagerException failure_ = null;
+
+        Hold(Thread owner, long start) {
+            owner_ = owner;
+            start_ = start;
+        }
+    }
+
+    /**
+     * Lock tracking the start and the owner of the write lock hold.
+     */
+    final class WatchdogLock extends DelegatingLock {
+        /**
+         * The current write lock hold, or {@code null}. Written only by the owner.
+         */
+        private volatile Hold hold_ = null;
+        private int ownerHolds_ = 0;
+        /**
+         * The threads, which have given up the read lock by a failed upgrade. Created on the first failure.
+         */
+        private volatile Set<Thread> abandonedReaders_ = null;
+
+        WatchdogLock(K key, Manager.Lock delegate) {
+            super(key, delegate);
+        }
+
+        private void own() {
+            final Thread currentThread = Thread.currentThread();
+            final Hold hold = hold_;
+            if (hold != null && hold.owner_ == currentThread) {
+                ownerHolds_++;
+            } else {
+                ownerHolds_ = 1;
+                hold_ = new Hold(currentThread, System.nanoTime());
+            }
+        }
+
+        private void disown() {
+            if (--ownerHolds_ == 0) {
+                hold_ = null;
+            }
+        }
+
+        private void checkFailure() {
+            final Hold hold = hold_;
+            final ManagerException failure = hold != null ? hold.failure_ : null;
+            if (failure != null) {
+                throw ExceptionUtils.asUnchecked(new ManagerException(failure.getMessage(), failure.getCause()));
+            }
+        }
+
+        private boolean tryLock(Mode mode, long timeoutNanos) throws InterruptedException {
+            switch (mode) {
+                case READ:
+                    return delegate_.tryLockRead(timeoutNanos, TimeUnit.NANOSECONDS);
+                case UPGRADABLE_READ:
+                    return delegate_.tryLockUpgradableRead(timeoutNanos, TimeUnit.NANOSECONDS);
+                default:
+                    return delegate_.tryLockWrite(timeoutNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        /**
+         * Waits for the lock in slices, checking for the failure of the waiters between them.
+         *
+         * @param mode the lock to acquire.
+         */
+        private void await(Mode mode) {
+            boolean interrupted = false;
+            try {
+                for (; ; ) {
+                    checkFailure();
+                    try {
+                        if (tryLock(mode, POLL_NANOS)) {
+                            return;
+                        }
+                    } catch (InterruptedException e) {
+                        // The acquisition is uninterruptible, the flag is restored after it.
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        /**
+         * Waits for the lock in slices like {@link #await(Mode)}, but gives up on the interruption.
+         *
+         * @param mode the lock to acquire.
+         * @throws InterruptedException if the current thread is interrupted while waiting.
+         */
+        private void awaitInterruptibly(Mode mode) throws InterruptedException {
+            for (; ; ) {
+                checkFailure();
+                if (tryLock(mode, POLL_NANOS)) {
+                    return;
+                }
+            }
+        }
+
+        private boolean tryLockNow(Mode mode) {
+            if (Thread.currentThread().isInterrupted()) {
+                // The zero-timeout try would throw InterruptedException.
+                return false;
+            }
+            try {
+                return tryLock(mode, 0L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        @Override
+        public void lockRead() {
+            if (!tryLockNow(Mode.READ)) {
+                await(Mode.READ);
+            }
+        }
+
+        @Override
+        public void unlockRead() {
+            final Set<Thread> abandonedReaders = abandonedReaders_;
+            if (abandonedReaders != null && abandonedReaders.remove(Thread.currentThread())) {
+                // The read lock has been released by the failed upgrade.
+                return;
+            }
+            delegate_.unlockRead();
+        }
+
+        @Override
+        public void lockWrite() {
+            if (!tryLockNow(Mode.WRITE)) {
+                await(Mode.WRITE);
+            }
+            own();
+        }
+
+        @Override
+        public void unlockWrite() {
+            disown();
+            delegate_.unlockWrite();
+        }
+
+        @Override
+        public void upgradeLock() {
+            boolean interrupted = false;
+            boolean upgraded;
+            try {
+                upgraded = delegate_.tryUpgradeLock(POLL_NANOS, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                upgraded = false;
+            }
+            try {
+                if (!upgraded) {
+                    // The read lock has been released, the write lock is awaited like by lockWrite().
+                    try {
+                        await(Mode.WRITE);
+                    } catch (Throwable e) {
+                        abandonRead();
+                        throw e;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            own();
+        }
+
+        private void abandonRead() {
+            Set<Thread> abandonedReaders = abandonedReaders_;
+            if (abandonedReaders == null) {
+                synchronized (this) {
+                    abandonedReaders = abandonedReaders_;
+                    if (abandonedReaders == null) {
+                        abandonedReaders = ConcurrentHashMap.newKeySet();
+                        abandonedReaders_ = abandonedReaders;
+                    }
+                }
+            }
+            abandonedReaders.add(Thread.currentThread());
+        }
+
+        @Override
+        public void downgradeLock() {
+            disown();
+            delegate_.downgradeLock();
+        }
+
+        @Override
+        public void lockReadInterruptibly() throws InterruptedException {
+            awaitInterruptibly(Mode.READ);
+        }
+
+        @Override
+        public void lockWriteInterruptibly() throws InterruptedException {
+            awaitInterruptibly(Mode.WRITE);
+            own();
+        }
+
+        @Override
+        public void lockUpgradableRead() {
+            if (!tryLockNow(Mode.UPGRADABLE_READ)) {
+                await(Mode.UPGRADABLE_READ);
+            }
+        }
+
+        @Override
+        public boolean tryLockWrite(long timeout, TimeUnit unit) throws InterruptedException {
+            if (!delegate_.tryLockWrite(timeout, unit)) {
+                return false;
+            }
+            own();
+            return true;
+        }
+
+        @Override
+        public boolean tryUpgradeLock(long timeout, TimeUnit unit) throws InterruptedException {
+            if (!delegate_.tryUpgradeLock(timeout, unit)) {
+                return false;
+            }
+            own();
+            return true;
+        }
+
+        @Override
+        public boolean upgradeUpgradableRead() {
+            final boolean atomic = delegate_.upgradeUpgradableRead();
+            own();
+            return atomic;
+        }
+
+        @Override
+        public void downgradeToUpgradableRead() {
+            disown();
+            delegate_.downgradeToUpgradableRead();
+        }
+    }
+
+}
@@ -0,0 +1,284 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager.lock;
+
+import com.devives.commons.manager.Manager;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Lock source with non-fair read-write locks that bound the barging of readers ahead of a waiting writer.
+ * <p>
+ * While no writer waits, the locks behave like the non-fair locks of {@link RWLockSource}. Once a writer is queued,
+ * new readers may still barge ahead of it, but only up to {@code maxBargingReaders} readers or for
+ * {@code maxBargingTime}, whichever comes first. Then new readers wait until all the queued writers have acquired
+ * the lock. This keeps most of the non-fair throughput and caps the wait of object replacement and removal
+ * (the write lock in {@code doReplace} and {@code doRemove}) by the time the readers already inside need to leave.
+ * <p>
+ * Readers that already hold the lock (reentrant reads, the write lock owner) never wait for the writers.
+ *
+ * @param <K> key type
+ */
+public final class WriterPreferringLockSource<K> extends AbstractLockSource<K> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<WriterPreferringLockSource.WriterPreferringLock> WAITING_WRITERS =
+            AtomicIntegerFieldUpdater.newUpdater(WriterPreferringLockSource.WriterPreferringLock.class, "waitingWriters_");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<WriterPreferringLockSource.WriterPreferringLock> BARGED_READERS =
+            AtomicIntegerFieldUpdater.newUpdater(WriterPreferringLockSource.WriterPreferringLock.class, "bargedReaders_");
+
+    private final int maxBargingReaders_;
+    private final long maxBargingNanos_;
+
+    /**
+     * Creates a lock source that bounds the count of readers barging ahead of a waiting writer.
+     *
+     * @param maxBargingReaders the count of readers allowed to acquire the lock after a writer has been queued.
+     */
+    public WriterPreferringLockSource(int maxBargingReaders) {
+        this(maxBargingReaders, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a lock source that bounds both the count of barging readers and the time they may barge.
+     *
+     * @param maxBargingReaders the count of readers allowed to acquire the lock after a writer has been queued.
+     * @param maxBargingTime    the time since a writer has been queued, after which no reader may barge ahead of it.
+     * @param unit              the time unit of {@code maxBargingTime}.
+     */
+    public WriterPreferringLockSource(int maxBargingReaders, long maxBargingTime, TimeUnit unit) {
+        if (maxBargingReaders < 0) {
+            throw new IllegalArgumentException("The count of barging readers must not be negative: " + maxBargingReaders);
+        }
+        if (maxBargingTime < 0) {
+            throw new IllegalArgumentException("The barging time must not be negative: " + maxBargingTime);
+        }
+        maxBargingReaders_ = maxBargingReaders;
+        maxBargingNanos_ = unit.toNanos(maxBargingTime);
+    }
+
+    @Override
+    protected <E extends Manager.Lock> E doAcquireLock() {
+        return (E) new WriterPreferringLock();
+    }
+
+    /**
+     * Per-key read-write lock implementation used by {@link WriterPreferringLockSource}.
+     */
+    final class WriterPreferringLock extends AbstractLock {
+        private final ReentrantReadWriteLock readWriteLock_ = new ReentrantReadWriteLock(false);
+        private final ReentrantLock gateLock_ = new ReentrantLock();
+        private final Condition writersGone_ = gateLock_.newCondition();
+        // Not private, the fields are updated by the field updaters of the enclosing class.
+        volatile int waitingWriters_ = 0;
+        volatile int bargedReaders_ = 0;
+        private volatile long writersWaitingSince_ = 0L;
+
+        @Override
+        public void lockRead() {
+            if (waitingWriters_ != 0 && !holdsLock()) {
+                awaitWriters();
+            }
+            readWriteLock_.readLock().lock();
+        }
+
+        @Override
+        public void unlockRead() {
+            readWriteLock_.readLock().unlock();
+        }
+
+        @Override
+        public void lockWrite() {
+            final ReentrantReadWriteLock.WriteLock writeLock = readWriteLock_.writeLock();
+            if (!writeLock.tryLock()) {
+                writerArrived();
+                try {
+                    writeLock.lock();
+                } finally {
+                    writerLeft();
+                }
+            }
+        }
+
+        @Override
+        public void unlockWrite() {
+            readWriteLock_.writeLock().unlock();
+        }
+
+        @Override
+        public void lockReadInterruptibly() throws InterruptedException {
+            if (waitingWriters_ != 0 && !holdsLock()) {
+                awaitWritersInterruptibly();
+            }
+            readWriteLock_.readLock().lockInterruptibly();
+        }
+
+        @Override
+        public boolean tryLockRead(long timeout, TimeUnit unit) throws InterruptedException {
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+            if (waitingWriters_ != 0 && !holdsLock() && !awaitWriters(unit.toNanos(timeout))) {
+                return false;
+            }
+            return readWriteLock_.readLock().tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void lockWriteInterruptibly() throws InterruptedException {
+            final ReentrantReadWriteLock.WriteLock writeLock = readWriteLock_.writeLock();
+            if (!writeLock.tryLock()) {
+                writerArrived();
+                try {
+                    writeLock.lockInterruptibly();
+                } finally {
+                    writerLeft();
+                }
+            }
+        }
+
+        @Override
+        public boolean tryLockWrite(long timeout, TimeUnit unit) throws InterruptedException {
+            final ReentrantReadWriteLock.WriteLock writeLock = readWriteLock_.writeLock();
+            if (writeLock.tryLock()) {
+                return true;
+            }
+            writerArrived();
+            try {
+                return writeLock.tryLock(timeout, unit);
+            } finally {
+                writerLeft();
+            }
+        }
+
+        @Override
+        public void upgradeLock() {
+            readWriteLock_.readLock().unlock();
+            lockWrite();
+        }
+
+        @Override
+        public boolean tryUpgradeLock(long timeout, TimeUnit unit) throws InterruptedException {
+            readWriteLock_.readLock().unlock();
+            return tryLockWrite(timeout, unit);
+        }
+
+        @Override
+        public void downgradeLock() {
+            // The write lock owner reads without waiting for the writers.
+            readWriteLock_.readLock().lock();
+            readWriteLock_.writeLock().unlock();
+        }
+
+        private boolean holdsLock() {
+            return readWriteLock_.isWriteLockedByCurrentThread() || readWriteLock_.getReadHoldCount() > 0;
+        }
+
+        private boolean mayBarge() {
+            return BARGED_READERS.incrementAndGet(this) <= maxBargingReaders_
+                    && System.nanoTime() - writersWaitingSince_ < maxBargingNanos_;
+        }
+
+        private void awaitWriters() {
+            if (mayBarge()) {
+                return;
+            }
+            gateLock_.lock();
+            try {
+                while (waitingWriters_ != 0) {
+                    writersGone_.awaitUninterruptibly();
+                }
+            } finally {
+                gateLock_.unlock();
+            }
+        }
+
+        private void awaitWritersInterruptibly() throws InterruptedException {
+            if (mayBarge()) {
+                return;
+            }
+            gateLock_.lockInterruptibly();
+            try {
+                while (waitingWriters_ != 0) {
+                    writersGone_.await();
+                }
+            } finally {
+                gateLock_.unlock();
+            }
+        }
+
+        private boolean awaitWriters(long timeoutNanos) throws InterruptedException {
+            if (mayBarge()) {
+                return true;
+            }
+            final long deadline = System.nanoTime() + timeoutNanos;
+            if (!gateLock_.tryLock(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+            try {
+                long remaining = deadline - System.nanoTime();
+                while (waitingWriters_ != 0) {
+                    if (remaining <= 0L) {
+                        return false;
+                    }
+                    remaining = writersGone_.awaitNanos(remaining);
+                }
+                return true;
+            } finally {
+                gateLock_.unlock();
+            }
+        }
+
+        private void writerArrived() {
+            // The arrivals are serialized by the gate, so only the first waiting writer opens a new barging period.
+            gateLock_.lock();
+            try {
+                for (; ; ) {
+                    final int writers = waitingWriters_;
+                    if (writers == 0) {
+                        // The period is reset before the writer is published to the readers.
+                        writersWaitingSince_ = System.nanoTime();
+                        bargedReaders_ = 0;
+                    }
+                    // A concurrent writerLeft() may change the count outside the gate.
+                    if (WAITING_WRITERS.compareAndSet(this, writers, writers + 1)) {
+                        return;
+                    }
+                }
+            } finally {
+                gateLock_.unlock();
+            }
+        }
+
+        private void writerLeft() {
+            if (WAITING_WRITERS.decrementAndGet(this) == 0) {
+                gateLock_.lock();
+                try {
+                    writersGone_.signalAll();
+                } finally {
+                    gateLock_.unlock();
+                }
+            }
+        }
+    }
+
+}
@@ -20,13 +20,33 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 public class ConcurrentHashManagerTest extends HashManagerTest {
 
+    private volatile SimpleTestItem failedItem;
+
     @Override
     protected <K, O> Manager<K, O> newManager() {
         return new ConcurrentHashManager<>();
@@ -49,6 +69,415 @@ public class ConcurrentHashManagerTest extends HashManagerTest {
         };
     }
 
+    @Test
+    public void getWithTimeout_presentItem_areEquals() throws Exception {
+        forManager(manager -> {
+            SimpleTestItem item1 = manager.computeIfAbsent("Item1", key -> new SimpleTestItem(), 1, TimeUnit.SECONDS);
+            Assertions.assertEquals(item1, manager.get("Item1", 1, TimeUnit.SECONDS));
+            Assertions.assertEquals(item1, manager.computeIfAbsent("Item1", key -> new SimpleTestItem(), 1, TimeUnit.SECONDS));
+        });
+    }
+
+    @Test
+    public void getWithTimeout_emptyManager_exceptionThrow() throws Exception {
+        forManager(manager -> {
+            Assertions.assertThrows(ManagerException.class, () -> manager.get("Item1", 1, TimeUnit.SECONDS));
+        });
+    }
+
+    @Test
+    public void getWithTimeout_keyLockedByCreation_lockTimeoutException() throws Exception {
+        forManager(manager -> {
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            final Thread creator = new Thread(() -> manager.computeIfAbsent("Item1", () -> {
+                started.countDown();
+                release.await();
+                return new SimpleTestItem();
+            }, Manager.noopManagedAdapter()));
+            creator.start();
+            try {
+                Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+                Assertions.assertThrows(LockTimeoutException.class, () -> manager.get("Item1", 50, TimeUnit.MILLISECONDS));
+                Assertions.assertThrows(LockTimeoutException.class, () -> manager.computeIfAbsent("Item1", key -> new SimpleTestItem(), 50, TimeUnit.MILLISECONDS));
+            } finally {
+                release.countDown();
+                creator.join();
+            }
+            Assertions.assertNotNull(manager.get("Item1", 1, TimeUnit.SECONDS));
+        });
+    }
+
+    @Test
+    public void getWithTimeout_interrupted_interruptedException() throws Exception {
+        forManager(manager -> {
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            final Thread creator = new Thread(() -> manager.computeIfAbsent("Item1", () -> {
+                started.countDown();
+                release.await();
+                return new SimpleTestItem();
+            }, Manager.noopManagedAdapter()));
+            creator.start();
+            try {
+                Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+                Thread.currentThread().interrupt();
+                Assertions.assertThrows(InterruptedException.class, () -> manager.get("Item1", 10, TimeUnit.SECONDS));
+                Assertions.assertFalse(Thread.interrupted());
+            } finally {
+                release.countDown();
+                creator.join();
+            }
+        });
+    }
+
+    @Test
+    public void getWithTimeout_lockWithoutTimedMethods_objectReturned() throws Exception {
+        // A third-party lock implementing the untimed methods only.
+        final Manager.LockSource<String> lockSource = new Manager.LockSource<String>() {
+            private final ReentrantReadWriteLock readWriteLock_ = new ReentrantReadWriteLock();
+            private final Manager.Lock lock_ = new Manager.Lock() {
+                public void lockRead() {
+                    readWriteLock_.readLock().lock();
+                }
+
+                public void unlockRead() {
+                    readWriteLock_.readLock().unlock();
+                }
+
+                public void lockWrite() {
+                    readWriteLock_.writeLock().lock();
+                }
+
+                public void unlockWrite() {
+                    readWriteLock_.writeLock().unlock();
+                }
+
+                public void upgradeLock() {
+                    readWriteLock_.readLock().unlock();
+                    readWriteLock_.writeLock().lock();
+                }
+
+                public void downgradeLock() {
+                    readWriteLock_.readLock().lock();
+                    readWriteLock_.writeLock().unlock();
+                }
+            };
+
+            public Manager.Lock acquire(String key) {
+                return lock_;
+            }
+
+            public void release(String key) {
+            }
+        };
+        final Manager<String, SimpleTestItem> manager = new ConcurrentHashManager<>(lockSource);
+        final SimpleTestItem item1 = manager.computeIfAbsent("Item1", key -> new SimpleTestItem(), 1, TimeUnit.SECONDS);
+        Assertions.assertSame(item1, manager.get("Item1", 1, TimeUnit.SECONDS));
+        Assertions.assertThrows(ManagerException.class, () -> manager.get("Item2", 1, TimeUnit.SECONDS));
+        manager.clear();
+    }
+
+    @Test
+    public void getWithTimeout_itemBeingRemoved_lockTimeoutException() throws Exception {
+        final CountDownLatch stopping = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Manager<String, SimpleTestItem> manager = newManager(new ManagedAdapter<SimpleTestItem>() {
+            @Override
+            public void startObject(SimpleTestItem object) {
+            }
+
+            @Override
+            public void stopObject(SimpleTestItem object) throws Exception {
+                stopping.countDown();
+                release.await();
+            }
+        });
+        final SimpleTestItem item1 = manager.computeIfAbsent("Item1", key -> new SimpleTestItem());
+        // The started item is got without the lock.
+        Assertions.assertSame(item1, manager.get("Item1", 50, TimeUnit.MILLISECONDS));
+        final Thread remover = new Thread(() -> manager.remove("Item1"));
+        remover.start();
+        try {
+            Assertions.assertTrue(stopping.await(10, TimeUnit.SECONDS));
+            // The stopping item is not returned, the lock of the key is awaited instead.
+            Assertions.assertThrows(LockTimeoutException.class, () -> manager.get("Item1", 50, TimeUnit.MILLISECONDS));
+        } finally {
+            release.countDown();
+            remover.join();
+        }
+        Assertions.assertNull(manager.getIfPresent("Item1"));
+    }
+
+    @Test
+    public void put_concurrentComputeIfAbsent_singleObjectStarted() throws Exception {
+        final AtomicInteger started = new AtomicInteger();
+        final AtomicInteger stopped = new AtomicInteger();
+        final Manager<String, SimpleTestItem> manager = newManager(new ManagedAdapter<SimpleTestItem>() {
+            @Override
+            public void startObject(SimpleTestItem object) {
+                started.incrementAndGet();
+            }
+
+            @Override
+            public void stopObject(SimpleTestItem object) {
+                stopped.incrementAndGet();
+            }
+        });
+        final SimpleTestItem item1 = manager.computeIfAbsent("Item1", SimpleTestItem::new);
+        final CountDownLatch creating = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread replacer = new Thread(() -> manager.put("Item1", key -> {
+            creating.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return new SimpleTestItem();
+        }));
+        final AtomicReference<SimpleTestItem> computed = new AtomicReference<>();
+        final Thread computer = new Thread(() -> computed.set(manager.computeIfAbsent("Item1", SimpleTestItem::new)));
+        replacer.start();
+        try {
+            Assertions.assertTrue(creating.await(10, TimeUnit.SECONDS));
+            computer.start();
+            // The key is being replaced, the computing thread must wait for the replacement.
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (computer.getState() != Thread.State.WAITING && computer.getState() != Thread.State.TERMINATED
+                    && System.nanoTime() < deadline) {
+                Thread.yield();
+            }
+        } finally {
+            release.countDown();
+            replacer.join();
+            computer.join();
+        }
+        final SimpleTestItem replaced = manager.get("Item1");
+        Assertions.assertNotSame(item1, replaced);
+        Assertions.assertSame(replaced, computed.get());
+        Assertions.assertEquals(1, manager.size());
+        manager.clear();
+        Assertions.assertEquals(2, started.get());
+        Assertions.assertEquals(started.get(), stopped.get());
+    }
+
+    @Test
+    public void computeAllIfAbsent_missingItems_startedInParallel() throws Exception {
+        final int count = 3;
+        final CyclicBarrier allStarting = new CyclicBarrier(count);
+        final Manager<String, SimpleTestItem> manager = newManager(new ManagedAdapter<SimpleTestItem>() {
+            @Override
+            public void startObject(SimpleTestItem object) throws Exception {
+                // Completes only if all objects are being started at the same time.
+                allStarting.await(10, TimeUnit.SECONDS);
+            }
+
+            @Override
+            public void stopObject(SimpleTestItem object) {
+            }
+        });
+        final ExecutorService executor = Executors.newFixedThreadPool(count);
+        try {
+            final Map<String, SimpleTestItem> result = manager.computeAllIfAbsent(
+                    Arrays.asList("Item1", "Item2", "Item3"), key -> new SimpleTestItem(), executor, count);
+            Assertions.assertEquals(count, result.size());
+            Assertions.assertEquals(count, manager.size());
+        } finally {
+            executor.shutdown();
+            manager.clear();
+        }
+    }
+
+    @Test
+    public void computeAllIfAbsent_parallelism_concurrentCreationsBounded() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final Manager<String, SimpleTestItem> manager = newManager(new ManagedAdapter<SimpleTestItem>() {
+            @Override
+            public void startObject(SimpleTestItem object) throws Exception {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(10);
+                running.decrementAndGet();
+            }
+
+            @Override
+            public void stopObject(SimpleTestItem object) {
+            }
+        });
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<String> keys = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                keys.add("Item" + i);
+            }
+            Assertions.assertEquals(keys.size(), manager.computeAllIfAbsent(keys, key -> new SimpleTestItem(), executor, 2).size());
+            Assertions.assertTrue(maxRunning.get() <= 2, "maxRunning = " + maxRunning.get());
+        } finally {
+            executor.shutdown();
+            manager.clear();
+        }
+    }
+
+    @Test
+    public void clearParallel_items_stoppedInParallel() throws Exception {
+        final int count = 3;
+        final CyclicBarrier allStopping = new CyclicBarrier(count);
+        final ConcurrentHashManager<String, SimpleTestItem> manager = (ConcurrentHashManager<String, SimpleTestItem>) this.<String, SimpleTestItem>newManager(new ManagedAdapter<SimpleTestItem>() {
+            @Override
+            public void startObject(SimpleTestItem object) {
+            }
+
+            @Override
+            public void stopObject(SimpleTestItem object) throws Exception {
+                // Completes only if all objects are being stopped at the same time.
+                allStopping.await(10, TimeUnit.SECONDS);
+            }
+        });
+        final ExecutorService executor = Executors.newFixedThreadPool(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                manager.computeIfAbsent("Item" + i, SimpleTestItem::new);
+            }
+            manager.clear(executor, count);
+            Assertions.assertTrue(manager.isEmpty());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void removeAllParallel_failedItem_othersRemoved() throws Exception {
+        final ConcurrentHashManager<String, SimpleTestItem> manager = (ConcurrentHashManager<String, SimpleTestItem>) this.<String, SimpleTestItem>newManager(new ManagedAdapter<SimpleTestItem>() {
+            @Override
+            public void startObject(SimpleTestItem object) {
+            }
+
+            @Override
+            public void stopObject(SimpleTestItem object) {
+                if (object == failedItem) {
+                    throw new IllegalStateException("stop");
+                }
+            }
+        });
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            manager.computeIfAbsent("Item1", SimpleTestItem::new);
+            failedItem = manager.computeIfAbsent("Failed", SimpleTestItem::new);
+            manager.computeIfAbsent("Item2", SimpleTestItem::new);
+            final ManagerException exception = Assertions.assertThrows(ManagerException.class, () -> manager.removeAll(executor, 2));
+            Assertions.assertTrue(exception.getCause() instanceof IllegalStateException);
+            Assertions.assertTrue(manager.isEmpty());
+        } finally {
+            failedItem = null;
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void removeIfParallel_matchingItems_removed() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            forManager(manager -> {
+                for (int i = 0; i < 10; i++) {
+                    manager.computeIfAbsent("Item" + i, SimpleTestItem::new);
+                }
+                final List<SimpleTestItem> removed = manager.removeIf((key, item) -> key.compareTo("Item5") < 0, executor, 2);
+                Assertions.assertEquals(5, removed.size());
+                Assertions.assertEquals(5, manager.size());
+                Assertions.assertFalse(manager.containsKey("Item0"));
+                Assertions.assertTrue(manager.containsKey("Item5"));
+            });
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void freeze_concurrentWrites_addedItemsServed() throws Exception {
+        final ConcurrentHashManager<String, SimpleTestItem> manager = (ConcurrentHashManager<String, SimpleTestItem>) this.<String, SimpleTestItem>newManager();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final AtomicBoolean done = new AtomicBoolean();
+        try {
+            final Future<?> freezer = executor.submit(() -> {
+                while (!done.get()) {
+                    manager.freeze();
+                }
+            });
+            for (int i = 0; i < 20_000; i++) {
+                final SimpleTestItem item = manager.computeIfAbsent("Item" + i, SimpleTestItem::new);
+                // A snapshot built before the put must not serve the lookups after it.
+                Assertions.assertSame(item, manager.getIfPresent("Item" + i));
+            }
+            done.set(true);
+            freezer.get(5, TimeUnit.SECONDS);
+        } finally {
+            done.set(true);
+            executor.shutdown();
+            manager.clear();
+        }
+    }
+
+    @Test
+    public void forEachParallel_items_allVisitedByPool() throws Exception {
+        final ConcurrentHashManager<String, SimpleTestItem> manager = (ConcurrentHashManager<String, SimpleTestItem>) this.<String, SimpleTestItem>newManager();
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            for (int i = 0; i < 100; i++) {
+                manager.computeIfAbsent("Item" + i, SimpleTestItem::new);
+            }
+            final Map<String, SimpleTestItem> visited = new ConcurrentHashMap<>();
+            final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+            manager.forEach(1, (key, item) -> {
+                visited.put(key, item);
+                threads.add(Thread.currentThread());
+            }, pool);
+            Assertions.assertEquals(100, visited.size());
+            Assertions.assertSame(manager.get("Item0"), visited.get("Item0"));
+            Assertions.assertTrue(threads.stream().allMatch(thread -> thread instanceof ForkJoinWorkerThread
+                    && ((ForkJoinWorkerThread) thread).getPool() == pool));
+
+            visited.clear();
+            manager.forEach(Long.MAX_VALUE, visited::put);
+            Assertions.assertEquals(100, visited.size());
+        } finally {
+            pool.shutdown();
+            manager.clear();
+        }
+    }
+
+    @Test
+    public void valuesSpliterator_itemBeingCreated_skippedAndSplit() throws Exception {
+        forManager(manager -> {
+            for (int i = 0; i < 1000; i++) {
+                manager.computeIfAbsent("Item" + i, SimpleTestItem::new);
+            }
+            final Spliterator<SimpleTestItem> spliterator = manager.values().spliterator();
+            Assertions.assertTrue(spliterator.hasCharacteristics(Spliterator.CONCURRENT | Spliterator.NONNULL));
+            Assertions.assertNotNull(spliterator.trySplit());
+            Assertions.assertTrue(manager.keySet().spliterator().hasCharacteristics(
+                    Spliterator.CONCURRENT | Spliterator.NONNULL | Spliterator.DISTINCT));
+
+            final CountDownLatch started = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            final Thread creator = new Thread(() -> manager.computeIfAbsent("Created", () -> {
+                started.countDown();
+                release.await();
+                return new SimpleTestItem();
+            }, Manager.noopManagedAdapter()));
+            creator.start();
+            try {
+                Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+                Assertions.assertEquals(1000, manager.values().parallelStream().count());
+                Assertions.assertTrue(manager.values().stream().allMatch(Objects::nonNull));
+            } finally {
+                release.countDown();
+                creator.join();
+            }
+            Assertions.assertEquals(1001, manager.values().parallelStream().count());
+        });
+    }
+
     @Nested
     protected class ValuesIteratorTest extends HashManagerTest.ValuesIteratorTest {
 
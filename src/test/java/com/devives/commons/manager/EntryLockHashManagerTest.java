@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class EntryLockHashManagerTest extends ConcurrentHashManagerTest {
+
+    @Override
+    protected <K, O> Manager<K, O> newManager() {
+        return new EntryLockHashManager<>();
+    }
+
+    @Override
+    protected <K, O> Manager<K, O> newManager(ManagedAdapter<O> defaultAdapter) {
+        return new EntryLockHashManager<>(defaultAdapter);
+    }
+
+    @Override
+    protected <K, O> Manager<K, O> newTrackingManager(AtomicInteger gotCounter) {
+        return new EntryLockHashManager<K, O>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void onEntryGot(Entry<O> entry) {
+                gotCounter.incrementAndGet();
+            }
+        };
+    }
+
+    @Test
+    public void computeIfAbsent_factoryFailed_placeholderRemoved() throws Exception {
+        final Manager<String, SimpleTestItem> manager = newManager();
+        try {
+            Assertions.assertThrows(IllegalStateException.class, () -> manager.computeIfAbsent("Item1", () -> {
+                throw new IllegalStateException();
+            }));
+            Assertions.assertTrue(manager.isEmpty());
+            Assertions.assertFalse(manager.containsKey("Item1"));
+            Assertions.assertNotNull(manager.computeIfAbsent("Item1", SimpleTestItem::new));
+        } finally {
+            manager.clear();
+        }
+    }
+
+    @Test
+    public void computeIfAbsentWithTimeout_interrupted_placeholderRemoved() throws Exception {
+        final Manager<String, SimpleTestItem> manager = newManager();
+        try {
+            Thread.currentThread().interrupt();
+            try {
+                Assertions.assertThrows(InterruptedException.class, () -> manager.computeIfAbsent("Item1", key -> new SimpleTestItem(), 1, TimeUnit.SECONDS));
+            } finally {
+                Thread.interrupted();
+            }
+            Assertions.assertTrue(manager.isEmpty());
+            Assertions.assertFalse(manager.containsKey("Item1"));
+            Assertions.assertNotNull(manager.computeIfAbsent("Item1", key -> new SimpleTestItem(), 1, TimeUnit.SECONDS));
+        } finally {
+            manager.clear();
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class FrozenEntryTableTest {
+
+    @Test
+    public void new_mapGrowsWhileIterated_allEntriesFound() throws Exception {
+        final Map<String, AbstractManager.Entry<String>> mappings = new LinkedHashMap<>();
+        for (int i = 0; i < 16; i++) {
+            mappings.put("key" + i, new AbstractManager.Entry<>());
+        }
+        // The map reports one mapping, as a concurrent map does if it grows after size() is called.
+        final Map<String, AbstractManager.Entry<String>> growingMap = new AbstractMap<String, AbstractManager.Entry<String>>() {
+            @Override
+            public int size() {
+                return 1;
+            }
+
+            @Override
+            public Set<Map.Entry<String, AbstractManager.Entry<String>>> entrySet() {
+                return mappings.entrySet();
+            }
+        };
+        final FrozenEntryTable<String, String> table = CompletableFuture.supplyAsync(() -> new FrozenEntryTable<>(0L, growingMap))
+                .get(10, TimeUnit.SECONDS);
+        for (Map.Entry<String, AbstractManager.Entry<String>> mapping : mappings.entrySet()) {
+            Assertions.assertSame(mapping.getValue(), table.get(mapping.getKey()));
+        }
+        Assertions.assertNull(CompletableFuture.supplyAsync(() -> table.get("absent")).get(10, TimeUnit.SECONDS));
+    }
+
+}
@@ -17,14 +17,20 @@
 package com.devives.commons.manager;
 
 import com.devives.commons.lang.function.FailableConsumer;
+import com.sun.management.ThreadMXBean;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import java.io.*;
+import java.lang.management.ManagementFactory;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class HashManagerTest {
@@ -53,6 +59,15 @@ public class HashManagerTest {
         });
     }
 
+    @Test
+    public void computeIfAbsent_presentItemAndNullArgument_exceptionThrow() throws Exception {
+        forManager(manager -> {
+            manager.computeIfAbsent("Item1", SimpleTestItem::new);
+            Assertions.assertThrows(NullPointerException.class, () -> manager.computeIfAbsent("Item1", key -> new SimpleTestItem(), null));
+            Assertions.assertThrows(NullPointerException.class, () -> manager.computeIfAbsent("Item1", key -> new SimpleTestItem(), 1, null));
+        });
+    }
+
     @Test
     public void get_afterComputeIfAbsent_areEquals() throws Exception {
         forManager(manager -> {
@@ -62,6 +77,217 @@ public class HashManagerTest {
         });
     }
 
+    @Test
+    public void computeIfAbsent_presentItem_zeroAllocatedBytesPerHit() throws Exception {
+        final ThreadMXBean threadMXBean = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled());
+        forManager(manager -> {
+            final int hits = 100_000;
+            final Function<String, SimpleTestItem> factory = key -> new SimpleTestItem();
+            final SimpleTestItem item1 = manager.computeIfAbsent("Item1", factory);
+            final long threadId = Thread.currentThread().getId();
+            for (int round = 0; round < 2; round++) {
+                // The first round warms up the measurement.
+                final long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+                for (int i = 0; i < hits; i++) {
+                    if (manager.computeIfAbsent("Item1", factory) != item1
+                            || manager.computeIfAbsent("Item1", SimpleTestItem::new) != item1
+                            || manager.getIfPresent("Item1") != item1
+                            || manager.get("Item1") != item1) {
+                        Assertions.fail("The present item expected.");
+                    }
+                }
+                final long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+                Assertions.assertEquals(0L, allocated / hits, "Allocated bytes per hit");
+            }
+        });
+    }
+
+    @Test
+    public void freeze_presentItems_servedUntilModification() throws Exception {
+        forManager(manager -> {
+            final AbstractManager<String, SimpleTestItem> abstractManager = (AbstractManager<String, SimpleTestItem>) manager;
+            final SimpleTestItem item1 = manager.computeIfAbsent("Item1", SimpleTestItem::new);
+            final SimpleTestItem item2 = manager.computeIfAbsent("Item2", SimpleTestItem::new);
+            Assertions.assertTrue(abstractManager.freeze());
+            Assertions.assertTrue(abstractManager.isFrozen());
+            Assertions.assertSame(item1, manager.get("Item1"));
+            Assertions.assertSame(item2, manager.computeIfAbsent("Item2", SimpleTestItem::new));
+            Assertions.assertNull(manager.getIfPresent("Item3"));
+            // A write thaws the manager.
+            final SimpleTestItem item3 = manager.computeIfAbsent("Item3", SimpleTestItem::new);
+            Assertions.assertFalse(abstractManager.isFrozen());
+            Assertions.assertSame(item3, manager.getIfPresent("Item3"));
+            Assertions.assertTrue(abstractManager.freeze());
+            Assertions.assertSame(item1, manager.remove("Item1"));
+            Assertions.assertFalse(abstractManager.isFrozen());
+            Assertions.assertNull(manager.getIfPresent("Item1"));
+            Assertions.assertTrue(abstractManager.freeze());
+            abstractManager.unfreeze();
+            Assertions.assertFalse(abstractManager.isFrozen());
+            Assertions.assertSame(item2, manager.get("Item2"));
+        });
+    }
+
+    @Test
+    public void nearCache_removedOrReplacedItem_notServed() throws Exception {
+        forManager(manager -> {
+            final AbstractManager<String, SimpleTestItem> abstractManager = (AbstractManager<String, SimpleTestItem>) manager;
+            abstractManager.setNearCacheCapacity(3);
+            Assertions.assertEquals(4, abstractManager.getNearCacheCapacity());
+            final SimpleTestItem item1 = manager.computeIfAbsent("Item1", SimpleTestItem::new);
+            Assertions.assertSame(item1, manager.get("Item1"));
+            Assertions.assertSame(item1, manager.getIfPresent("Item1"));
+            Assertions.assertSame(item1, manager.remove("Item1"));
+            Assertions.assertNull(manager.getIfPresent("Item1"));
+            final SimpleTestItem item1_1 = manager.computeIfAbsent("Item1", SimpleTestItem::new);
+            Assertions.assertNotSame(item1, item1_1);
+            Assertions.assertSame(item1_1, manager.get("Item1"));
+            final SimpleTestItem item1_2 = manager.put("Item1", SimpleTestItem::new);
+            Assertions.assertSame(item1_2, manager.get("Item1"));
+            Assertions.assertSame(item1_2, manager.computeIfAbsent("Item1", SimpleTestItem::new));
+            abstractManager.setNearCacheCapacity(0);
+            Assertions.assertSame(item1_2, manager.getIfPresent("Item1"));
+        });
+    }
+
+    @Test
+    public void getAll_presentItems_inKeysOrder() throws Exception {
+        forManager(manager -> {
+            final SimpleTestItem item1 = manager.computeIfAbsent("Item1", SimpleTestItem::new);
+            final SimpleTestItem item2 = manager.computeIfAbsent("Item2", SimpleTestItem::new);
+            final Map<String, SimpleTestItem> result = manager.getAll(Arrays.asList("Item2", "Item1", "Item2"));
+            Assertions.assertEquals(Arrays.asList("Item2", "Item1"), new ArrayList<>(result.keySet()));
+            Assertions.assertSame(item1, result.get("Item1"));
+            Assertions.assertSame(item2, result.get("Item2"));
+        });
+    }
+
+    @Test
+    public void getAll_missingItem_exceptionThrow() throws Exception {
+        forManager(manager -> {
+            manager.computeIfAbsent("Item1", SimpleTestItem::new);
+            Assertions.assertThrows(ManagerException.class, () -> manager.getAll(Arrays.asList("Item1", "Item2")));
+            final ManagerException exception = Assertions.assertThrows(ManagerException.class, () -> manager.getAll(Arrays.asList("Item2", "Item1", "Item3", "Item2")));
+            Assertions.assertTrue(exception.getMessage().contains("[Item2, Item3]"), exception.getMessage());
+        });
+    }
+
+    @Test
+    public void getAllPresent_missingItem_skipped() throws Exception {
+        forManager(manager -> {
+            final SimpleTestItem item1 = manager.computeIfAbsent("Item1", SimpleTestItem::new);
+            final Map<String, SimpleTestItem> result = manager.getAllPresent(Arrays.asList("Item1", "Item2"));
+            Assertions.assertEquals(1, result.size());
+            Assertions.assertSame(item1, result.get("Item1"));
+            Assertions.assertTrue(manager.getAllPresent(Collections.emptyList()).isEmpty());
+        });
+    }
+
+    @Test
+    public void computeAllIfAbsent_missingItems_created() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            forManager(manager -> {
+                final SimpleTestItem item1 = manager.computeIfAbsent("Item1", SimpleTestItem::new);
+                final Map<String, SimpleTestItem> result = manager.computeAllIfAbsent(
+                        Arrays.asList("Item3", "Item1", "Item2", "Item3"), key -> new SimpleTestItem(), executor);
+                Assertions.assertEquals(Arrays.asList("Item3", "Item1", "Item2"), new ArrayList<>(result.keySet()));
+                Assertions.assertSame(item1, result.get("Item1"));
+                Assertions.assertSame(result.get("Item2"), manager.get("Item2"));
+                Assertions.assertSame(result.get("Item3"), manager.get("Item3"));
+            });
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void computeAllIfAbsent_failedItem_createdItemsRemoved() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            forManager(manager -> {
+                final SimpleTestItem present = manager.computeIfAbsent("Present", SimpleTestItem::new);
+                final ManagerException exception = Assertions.assertThrows(ManagerException.class,
+                        () -> manager.computeAllIfAbsent(Arrays.asList("Item1", "Present", "Failed", "Item2"), key -> {
+                            if ("Failed".equals(key)) {
+                                throw new IllegalStateException(key);
+                            }
+                            return new SimpleTestItem();
+                        }, executor, 1));
+                Assertions.assertTrue(exception.getCause() instanceof IllegalStateException);
+                Assertions.assertFalse(manager.containsKey("Failed"));
+                Assertions.assertFalse(manager.containsKey("Item1"));
+                Assertions.assertFalse(manager.containsKey("Item2"));
+                Assertions.assertSame(present, manager.get("Present"));
+            });
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void removeIf_matchingItems_removed() throws Exception {
+        forManager(manager -> {
+            final SimpleTestItem item1 = manager.computeIfAbsent("A1", SimpleTestItem::new);
+            final SimpleTestItem item2 = manager.computeIfAbsent("A2", SimpleTestItem::new);
+            manager.computeIfAbsent("B1", SimpleTestItem::new);
+            final List<SimpleTestItem> removed = manager.removeIf((key, item) -> key.startsWith("A"));
+            Assertions.assertEquals(new HashSet<>(Arrays.asList(item1, item2)), new HashSet<>(removed));
+            Assertions.assertEquals(Collections.singleton("B1"), manager.keySet());
+        });
+    }
+
+    @Test
+    public void removeIf_itemReplacedAfterMatch_notRemoved() throws Exception {
+        forManager(manager -> {
+            manager.computeIfAbsent("A1", SimpleTestItem::new);
+            final List<SimpleTestItem> removed = manager.removeIf((key, item) -> {
+                // The matched object is replaced before the write lock is taken.
+                manager.put(key, SimpleTestItem::new);
+                return true;
+            });
+            Assertions.assertTrue(removed.isEmpty());
+            Assertions.assertTrue(manager.containsKey("A1"));
+        });
+    }
+
+    @Test
+    public void valuesParallelStream_items_allVisited() throws Exception {
+        forManager(manager -> {
+            final Set<SimpleTestItem> items = new HashSet<>();
+            for (int i = 0; i < 1000; i++) {
+                items.add(manager.computeIfAbsent("Item" + i, SimpleTestItem::new));
+            }
+            Assertions.assertEquals(items, manager.values().parallelStream().collect(Collectors.toSet()));
+            Assertions.assertEquals(1000, manager.values().parallelStream().count());
+            Assertions.assertTrue(manager.values().spliterator().hasCharacteristics(Spliterator.NONNULL));
+            Assertions.assertFalse(manager.values().spliterator().hasCharacteristics(Spliterator.SIZED));
+            Assertions.assertTrue(manager.keySet().spliterator().hasCharacteristics(Spliterator.DISTINCT));
+        });
+    }
+
+    @Test
+    public void valuesSnapshot_modifiedManager_rebuilt() throws Exception {
+        forManager(manager -> {
+            final SimpleTestItem item1 = manager.computeIfAbsent("Item1", SimpleTestItem::new);
+            final List<SimpleTestItem> snapshot = manager.valuesSnapshot();
+            Assertions.assertEquals(Collections.singletonList(item1), snapshot);
+            Assertions.assertSame(snapshot, manager.valuesSnapshot());
+            Assertions.assertThrows(UnsupportedOperationException.class, () -> snapshot.set(0, null));
+
+            final SimpleTestItem item2 = manager.computeIfAbsent("Item2", SimpleTestItem::new);
+            Assertions.assertEquals(new HashSet<>(Arrays.asList(item1, item2)), new HashSet<>(manager.valuesSnapshot()));
+
+            final SimpleTestItem replaced = manager.put("Item1", SimpleTestItem::new);
+            Assertions.assertEquals(new HashSet<>(Arrays.asList(replaced, item2)), new HashSet<>(manager.valuesSnapshot()));
+
+            manager.remove("Item2");
+            Assertions.assertEquals(Collections.singletonList(replaced), manager.valuesSnapshot());
+            Assertions.assertEquals(Collections.singletonList(item1), snapshot);
+        });
+    }
+
     @Test
     public void containsKey_emptyManager_returnFalse() throws Exception {
         forManager(manager -> {
@@ -434,6 +660,53 @@ public class HashManagerTest {
         }
     }
 
+    @Test
+    public void lifeCycle_onStartFailure_objectDestroyedAndNotAdded() throws Exception {
+        final RecordingAdapter adapter = new RecordingAdapter("start");
+        final Manager<String, SimpleTestItem> manager = newManager(adapter);
+        final IllegalStateException exception = Assertions.assertThrows(IllegalStateException.class,
+                () -> manager.computeIfAbsent("Item1", SimpleTestItem::new));
+        Assertions.assertEquals("start", exception.getMessage());
+        Assertions.assertEquals(Arrays.asList("start", "destroy"), adapter.events);
+        Assertions.assertFalse(manager.containsKey("Item1"));
+    }
+
+    @Test
+    public void lifeCycle_onStartAndDestroyFailure_destroyFailureThrown() throws Exception {
+        final RecordingAdapter adapter = new RecordingAdapter("start", "destroy");
+        final Manager<String, SimpleTestItem> manager = newManager(adapter);
+        final IllegalStateException exception = Assertions.assertThrows(IllegalStateException.class,
+                () -> manager.computeIfAbsent("Item1", SimpleTestItem::new));
+        Assertions.assertEquals("destroy", exception.getMessage());
+        Assertions.assertEquals(0, exception.getSuppressed().length);
+        Assertions.assertEquals(Arrays.asList("start", "destroy"), adapter.events);
+        Assertions.assertFalse(manager.containsKey("Item1"));
+    }
+
+    @Test
+    public void lifeCycle_onStopAndDestroyFailure_destroyFailureThrown() throws Exception {
+        final RecordingAdapter adapter = new RecordingAdapter("stop", "destroy");
+        final Manager<String, SimpleTestItem> manager = newManager(adapter);
+        manager.computeIfAbsent("Item1", SimpleTestItem::new);
+        final IllegalStateException exception = Assertions.assertThrows(IllegalStateException.class,
+                () -> manager.remove("Item1"));
+        Assertions.assertEquals("destroy", exception.getMessage());
+        Assertions.assertEquals(0, exception.getSuppressed().length);
+        Assertions.assertEquals(Arrays.asList("start", "stop", "destroy"), adapter.events);
+        Assertions.assertFalse(manager.containsKey("Item1"));
+    }
+
+    @Test
+    public void lifeCycle_onStopFailure_objectDestroyedAndRemoved() throws Exception {
+        final RecordingAdapter adapter = new RecordingAdapter("stop");
+        final Manager<String, SimpleTestItem> manager = newManager(adapter);
+        manager.computeIfAbsent("Item1", SimpleTestItem::new);
+        final IllegalStateException exception = Assertions.assertThrows(IllegalStateException.class,
+                () -> manager.remove("Item1"));
+        Assertions.assertEquals("stop", exception.getMessage());
+        Assertions.assertEquals(Arrays.asList("start", "stop", "destroy"), adapter.events);
+        Assertions.assertFalse(manager.containsKey("Item1"));
+    }
 
     private ManagedFactory<TestCloseableItem> createManagedFactory(Manager<String, TestCloseableItem> manager) {
         return new ManagedFactory<TestCloseableItem>() {
@@ -489,6 +762,40 @@ public class HashManagerTest {
 
     }
 
+    /**
+     * Records the lifecycle calls and fails the given ones with {@link IllegalStateException}.
+     */
+    private static class RecordingAdapter implements ManagedAdapter<SimpleTestItem> {
+        private final List<String> failing;
+        private final List<String> events = new ArrayList<>();
+
+        private RecordingAdapter(String... failing) {
+            this.failing = Arrays.asList(failing);
+        }
+
+        private void record(String event) {
+            events.add(event);
+            if (failing.contains(event)) {
+                throw new IllegalStateException(event);
+            }
+        }
+
+        @Override
+        public void startObject(SimpleTestItem object) {
+            record("start");
+        }
+
+        @Override
+        public void stopObject(SimpleTestItem object) {
+            record("stop");
+        }
+
+        @Override
+        public void destroyObject(SimpleTestItem object) {
+            record("destroy");
+        }
+    }
+
     private static class TestCloseableItem {
 
         public void start() throws Exception {
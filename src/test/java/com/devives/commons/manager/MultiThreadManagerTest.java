@@ -18,8 +18,17 @@ package com.devives.commons.manager;
 
 import com.devives.commons.Task;
 import com.devives.commons.lang.ExceptionUtils;
+import com.devives.commons.manager.lock.AdaptiveLockSource;
+import com.devives.commons.manager.lock.DeadlockDetectingLockSource;
+import com.devives.commons.manager.lock.InstrumentedLockSource;
 import com.devives.commons.manager.lock.RWLockSource;
+import com.devives.commons.manager.lock.ReadBiasedLockSource;
+import com.devives.commons.manager.lock.ReentrantLockSource;
+import com.devives.commons.manager.lock.StampedLockSource;
+import com.devives.commons.manager.lock.StripedLockSource;
 import com.devives.commons.manager.lock.SyncLockSource;
+import com.devives.commons.manager.lock.WatchdogLockSource;
+import com.devives.commons.manager.lock.WriterPreferringLockSource;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -45,7 +54,21 @@ public class MultiThreadManagerTest {
         return Stream.of(
                 Arguments.of("FairRWLock", new ConcurrentHashManager<String, SimpleItem>(new RWLockSource<>(true))),
                 Arguments.of("NoFairRWLock", new ConcurrentHashManager<String, SimpleItem>(new RWLockSource<>(false))),
-                Arguments.of("SyncLock", new ConcurrentHashManager<String, SimpleItem>(new SyncLockSource<>()))
+                Arguments.of("StickyRWLock", new ConcurrentHashManager<String, SimpleItem>(new RWLockSource<>(false, 16))),
+                Arguments.of("SyncLock", new ConcurrentHashManager<String, SimpleItem>(new SyncLockSource<>())),
+                Arguments.of("StampedLock", new ConcurrentHashManager<String, SimpleItem>(new StampedLockSource<>())),
+                Arguments.of("StickyStampedLock", new ConcurrentHashManager<String, SimpleItem>(new StampedLockSource<>(16))),
+                Arguments.of("StripedLock", new ConcurrentHashManager<String, SimpleItem>(new StripedLockSource<>(64))),
+                Arguments.of("NoFairEntryLock", new EntryLockHashManager<String, SimpleItem>(false)),
+                Arguments.of("WriterPreferringLock", new ConcurrentHashManager<String, SimpleItem>(new WriterPreferringLockSource<>(16, 10, TimeUnit.MILLISECONDS))),
+                Arguments.of("ReadBiasedLock", new ConcurrentHashManager<String, SimpleItem>(new ReadBiasedLockSource<>())),
+                Arguments.of("StickyReadBiasedLock", new ConcurrentHashManager<String, SimpleItem>(new ReadBiasedLockSource<>(16))),
+                Arguments.of("ReentrantLock", new ConcurrentHashManager<String, SimpleItem>(new ReentrantLockSource<>())),
+                Arguments.of("AdaptiveLock", new ConcurrentHashManager<String, SimpleItem>(new AdaptiveLockSource<>())),
+                Arguments.of("DeadlockDetectingLock", new ConcurrentHashManager<String, SimpleItem>(new DeadlockDetectingLockSource<>(new RWLockSource<>(false)))),
+                Arguments.of("InstrumentedLock", new ConcurrentHashManager<String, SimpleItem>(new InstrumentedLockSource<>(new SyncLockSource<>()))),
+                Arguments.of("WatchdogLock", new ConcurrentHashManager<String, SimpleItem>(new WatchdogLockSource<>(new RWLockSource<>(false), 1, TimeUnit.MINUTES, lock -> {
+                })))
         );
     }
 
@@ -20,9 +20,13 @@ import com.devives.commons.manager.specials.AutoCloseableFactory;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 public class TheDescendantManagerTest {
 
@@ -45,6 +49,45 @@ public class TheDescendantManagerTest {
         }
     }
 
+    @Test
+    public void remove_doRemoveOverridden_unconditionalRemovalsIntercepted() throws Exception {
+        final List<String> removedKeys = new ArrayList<>();
+        final ConcurrentHashManager<String, TestCloseableItem> manager = new ConcurrentHashManager<String, TestCloseableItem>() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected TestCloseableItem doRemove(String key) throws Exception {
+                removedKeys.add(key);
+                return super.doRemove(key);
+            }
+        };
+        manager.computeIfAbsent("item1", key -> new TestCloseableItem(key));
+        manager.computeIfAbsent("item2", key -> new TestCloseableItem(key));
+        Assertions.assertNotNull(manager.remove("item1"));
+        manager.clear();
+        Assertions.assertEquals(Arrays.asList("item1", "item2"), removedKeys);
+        Assertions.assertTrue(manager.isEmpty());
+    }
+
+    @Test
+    public void computeIfAbsent_entryWithoutObject_objectCreated() throws Exception {
+        final ConcurrentHashManager<String, TestCloseableItem> manager = new ConcurrentHashManager<String, TestCloseableItem>() {
+            private static final long serialVersionUID = 1L;
+
+            {
+                // The entry is published before its object, like by a descendant reserving the key.
+                internalPutEntry("item1", doCreateEntry());
+                internalPutEntry("item2", doCreateEntry());
+            }
+        };
+        try {
+            Assertions.assertEquals("item1", manager.computeIfAbsent("item1", key -> new TestCloseableItem(key)).getAdditionalField());
+            Assertions.assertEquals("item2", manager.computeIfAbsent("item2", key -> new TestCloseableItem(key), 1, TimeUnit.SECONDS).getAdditionalField());
+        } finally {
+            manager.clear();
+        }
+    }
+
     private static class TestCloseableItemManager extends ConcurrentHashManager<String, TestCloseableItem> {
         private static final long serialVersionUID = 1L;
         private final ConcurrentMap<String, TestCloseableItem> additionalIndex_;
@@ -0,0 +1,64 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager.lock;
+
+import com.devives.commons.manager.ConcurrentHashManager;
+import com.devives.commons.manager.Manager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class AdaptiveLockSourceTest {
+
+    @Test
+    public void getStrategy_newSource_nonFairReadWrite() throws Exception {
+        Assertions.assertEquals(AdaptiveLockSource.Strategy.NON_FAIR_READ_WRITE, new AdaptiveLockSource<String>().getStrategy("A"));
+    }
+
+    @Test
+    public void getStrategy_readHeavyLoad_nonFairReadWrite() throws Exception {
+        final AdaptiveLockSource<String> lockSource = new AdaptiveLockSource<>(1);
+        final Manager<String, String> manager = new ConcurrentHashManager<>(lockSource);
+        try {
+            manager.computeIfAbsent("A", key -> key);
+            for (int i = 0; i < 2 * AdaptiveLockSource.DECISION_SAMPLE; i++) {
+                Assertions.assertEquals("A", manager.get("A"));
+            }
+            Assertions.assertEquals(AdaptiveLockSource.Strategy.NON_FAIR_READ_WRITE, lockSource.getStrategy("A"));
+        } finally {
+            manager.clear();
+        }
+    }
+
+    @Test
+    public void getStrategy_writeHeavyLoad_exclusive() throws Exception {
+        final AdaptiveLockSource<String> lockSource = new AdaptiveLockSource<>(1);
+        final Manager<String, String> manager = new ConcurrentHashManager<>(lockSource);
+        try {
+            for (int i = 0; i < 2 * AdaptiveLockSource.DECISION_SAMPLE; i++) {
+                manager.put("A", key -> key);
+                manager.remove("A");
+            }
+            Assertions.assertEquals(AdaptiveLockSource.Strategy.EXCLUSIVE, lockSource.getStrategy("A"));
+            // Newly allocated locks follow the strategy.
+            Assertions.assertEquals("B", manager.computeIfAbsent("B", key -> key));
+            Assertions.assertEquals("B", manager.get("B"));
+        } finally {
+            manager.clear();
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager.lock;
+
+import com.devives.commons.manager.ConcurrentHashManager;
+import com.devives.commons.manager.Manager;
+import com.devives.commons.manager.ManagerException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.*;
+
+public class DeadlockDetectingLockSourceTest {
+
+    @Test
+    public void computeIfAbsent_crossKeyFactories_managerExceptionNamesKeys() throws Exception {
+        final Manager<String, String> manager = new ConcurrentHashManager<>(new DeadlockDetectingLockSource<>(new RWLockSource<>(false)));
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        try {
+            final Future<String> a = executorService.submit(() -> manager.computeIfAbsent("A", () -> {
+                barrier.await(5, TimeUnit.SECONDS);
+                return "A" + manager.computeIfAbsent("B", key -> key);
+            }));
+            final Future<String> b = executorService.submit(() -> manager.computeIfAbsent("B", () -> {
+                barrier.await(5, TimeUnit.SECONDS);
+                return "B" + manager.computeIfAbsent("A", key -> key);
+            }));
+            int failed = 0;
+            for (Future<String> future : new Future[]{a, b}) {
+                try {
+                    future.get(10, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    Assertions.assertTrue(e.getCause() instanceof ManagerException, e.getCause().toString());
+                    final String message = e.getCause().getMessage();
+                    Assertions.assertTrue(message.contains("'A'") && message.contains("'B'"), message);
+                    failed++;
+                }
+            }
+            Assertions.assertTrue(failed > 0);
+        } finally {
+            executorService.shutdownNow();
+            manager.clear();
+        }
+    }
+
+    @Test
+    public void computeIfAbsent_recursiveAccessToSameKey_noDeadlockDetected() throws Exception {
+        final Manager<String, String> manager = new ConcurrentHashManager<>(new DeadlockDetectingLockSource<>(new RWLockSource<>(false)));
+        try {
+            final String a = manager.computeIfAbsent("A", () -> {
+                Assertions.assertNull(manager.getIfPresent("A"));
+                return "A" + manager.computeIfAbsent("B", key -> key);
+            });
+            Assertions.assertEquals("AB", a);
+            Assertions.assertEquals("B", manager.put("A", () -> manager.get("B")));
+        } finally {
+            manager.clear();
+        }
+    }
+
+}
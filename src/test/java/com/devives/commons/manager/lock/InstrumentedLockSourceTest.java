@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager.lock;
+
+import com.devives.commons.manager.ConcurrentHashManager;
+import com.devives.commons.manager.ManagedAdapter;
+import com.devives.commons.manager.Manager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+public class InstrumentedLockSourceTest {
+
+    @Test
+    public void getStatistics_computeIfAbsentAndGet_acquisitionsCounted() throws Exception {
+        final InstrumentedLockSource<String> lockSource = new InstrumentedLockSource<>(new RWLockSource<>(false));
+        final Manager<String, String> manager = new ConcurrentHashManager<>(lockSource);
+        try {
+            Assertions.assertNull(lockSource.getStatistics("A"));
+            manager.computeIfAbsent("A", key -> key);
+            manager.get("A");
+            final InstrumentedLockSource.Statistics statistics = lockSource.getStatistics("A");
+            Assertions.assertNotNull(statistics);
+            Assertions.assertEquals(1, statistics.getUpgrades());
+            Assertions.assertEquals(1, statistics.getWriteAcquires());
+            Assertions.assertEquals(1, statistics.getWriteHold().getCount());
+            Assertions.assertEquals(0, statistics.getWaiters());
+            Assertions.assertTrue(statistics.getReadAcquires() >= 2);
+            lockSource.reset();
+            Assertions.assertNull(lockSource.getStatistics("A"));
+        } finally {
+            manager.clear();
+        }
+    }
+
+    @Test
+    public void getHotKeys_keyWithWaiters_first() throws Exception {
+        final InstrumentedLockSource<String> lockSource = new InstrumentedLockSource<>(new RWLockSource<>(false));
+        final Manager<String, String> manager = new ConcurrentHashManager<>(lockSource);
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        final CountDownLatch started = new CountDownLatch(1);
+        try {
+            manager.computeIfAbsent("cold", key -> key);
+            final Future<String> slow = executorService.submit(() -> manager.computeIfAbsent("hot", () -> "hot", new ManagedAdapter<String>() {
+                @Override
+                public void startObject(String object) throws Exception {
+                    started.countDown();
+                    Thread.sleep(100);
+                }
+
+                @Override
+                public void stopObject(String object) throws Exception {
+
+                }
+            }));
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+            Assertions.assertEquals("hot", executorService.submit(() -> manager.get("hot")).get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals("hot", slow.get(5, TimeUnit.SECONDS));
+
+            final List<Map.Entry<String, InstrumentedLockSource.Statistics>> hotKeys = lockSource.getHotKeys(1);
+            Assertions.assertEquals(1, hotKeys.size());
+            Assertions.assertEquals("hot", hotKeys.get(0).getKey());
+            final InstrumentedLockSource.Statistics statistics = hotKeys.get(0).getValue();
+            Assertions.assertTrue(statistics.getReadWait().getMaxNanos() >= TimeUnit.MILLISECONDS.toNanos(10), statistics.toString());
+            Assertions.assertTrue(statistics.getWriteHold().getPercentileNanos(99.0) >= TimeUnit.MILLISECONDS.toNanos(50), statistics.toString());
+            Assertions.assertEquals(2, lockSource.getHotKeys(10).size());
+        } finally {
+            executorService.shutdownNow();
+            manager.clear();
+        }
+    }
+
+    @Test
+    public void newLock_maxKeysExceeded_coldKeysDropped() throws Exception {
+        final InstrumentedLockSource<String> lockSource = new InstrumentedLockSource<>(new RWLockSource<>(false), 4);
+        final Manager.Lock hot = lockSource.acquire("hot");
+        hot.lockWrite();
+        try {
+            Assertions.assertFalse(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return hot.tryLockRead(20, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }).get(10, TimeUnit.SECONDS));
+        } finally {
+            hot.unlockWrite();
+            lockSource.release("hot");
+        }
+        for (int i = 0; i < 100; i++) {
+            lockSource.acquire("key" + i);
+            lockSource.release("key" + i);
+        }
+        Assertions.assertTrue(lockSource.getHotKeys(Integer.MAX_VALUE).size() <= 4);
+        Assertions.assertNotNull(lockSource.getStatistics("hot"));
+        Assertions.assertEquals("hot", lockSource.getHotKeys(1).get(0).getKey());
+    }
+
+    @Test
+    public void lockRead_delegateThrows_waitersRestored() throws Exception {
+        final Manager.Lock failingLock = new Manager.Lock() {
+            public void lockRead() {
+                throw new IllegalStateException("read");
+            }
+
+            public void unlockRead() {
+            }
+
+            public void lockWrite() {
+                throw new IllegalStateException("write");
+            }
+
+            public void unlockWrite() {
+            }
+
+            public void upgradeLock() {
+                throw new IllegalStateException("upgrade");
+            }
+
+            public void downgradeLock() {
+            }
+        };
+        final InstrumentedLockSource<String> lockSource = new InstrumentedLockSource<>(new Manager.LockSource<String>() {
+            public Manager.Lock acquire(String key) {
+                return failingLock;
+            }
+
+            public void release(String key) {
+            }
+        });
+        final Manager.Lock lock = lockSource.acquire("A");
+        try {
+            Assertions.assertThrows(IllegalStateException.class, lock::lockRead);
+            Assertions.assertThrows(IllegalStateException.class, lock::lockWrite);
+            Assertions.assertThrows(IllegalStateException.class, lock::upgradeLock);
+            Assertions.assertThrows(IllegalStateException.class, lock::lockUpgradableRead);
+            final InstrumentedLockSource.Statistics statistics = lockSource.getStatistics("A");
+            Assertions.assertEquals(0, statistics.getWaiters());
+            Assertions.assertEquals(0, statistics.getReadAcquires());
+            Assertions.assertEquals(0, statistics.getWriteAcquires());
+        } finally {
+            lockSource.release("A");
+        }
+    }
+
+}
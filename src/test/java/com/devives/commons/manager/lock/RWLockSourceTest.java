@@ -0,0 +1,131 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager.lock;
+
+import com.devives.commons.manager.Manager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class RWLockSourceTest {
+
+    @Test
+    public void release_lastUsage_lockReclaimed() throws Exception {
+        final RWLockSource<String> lockSource = new RWLockSource<>(false);
+        final Manager.Lock lock = lockSource.acquire("A");
+        Assertions.assertSame(lock, lockSource.acquire("A"));
+        lockSource.release("A");
+        lockSource.release("A");
+        Assertions.assertTrue(lockSource.map_.isEmpty());
+        Assertions.assertNotSame(lock, lockSource.acquire("A"));
+    }
+
+    @Test
+    public void release_idleLocksEnabled_lockReused() throws Exception {
+        final RWLockSource<String> lockSource = new RWLockSource<>(false, 4);
+        final Manager.Lock lock = lockSource.acquire("A");
+        lockSource.release("A");
+        Assertions.assertSame(lock, lockSource.acquire("A"));
+        lockSource.release("A");
+    }
+
+    @Test
+    public void release_idleLocksOverflow_idleLocksReclaimed() throws Exception {
+        final RWLockSource<String> lockSource = new RWLockSource<>(false, 4);
+        final Manager.Lock held = lockSource.acquire("held");
+        for (int i = 0; i < 4; i++) {
+            lockSource.acquire("key" + i);
+            lockSource.release("key" + i);
+        }
+        Assertions.assertTrue(lockSource.map_.size() <= 2);
+        // The lock in use is not reclaimed.
+        Assertions.assertSame(held, lockSource.acquire("held"));
+        lockSource.release("held");
+        lockSource.release("held");
+    }
+
+    @Test
+    public void upgradeUpgradableRead_writerWaiting_upgradeAtomic() throws Exception {
+        final Manager.Lock lock = new RWLockSource<String>(false).acquire("A");
+        lock.lockUpgradableRead();
+        final CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            lock.lockWrite();
+            lock.unlockWrite();
+        });
+        try {
+            Thread.sleep(100);
+            Assertions.assertFalse(writer.isDone());
+            Assertions.assertTrue(lock.upgradeUpgradableRead());
+            try {
+                Assertions.assertFalse(CompletableFuture.supplyAsync(() -> tryLockRead(lock)).get(10, TimeUnit.SECONDS));
+            } finally {
+                lock.downgradeToUpgradableRead();
+            }
+            // The waiting writer does not get in while the upgradable read lock is held.
+            Thread.sleep(100);
+            Assertions.assertFalse(writer.isDone());
+        } finally {
+            lock.unlockUpgradableRead();
+        }
+        writer.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void lockUpgradableRead_upgradableReadHeld_secondUpgradableReaderWaits() throws Exception {
+        final Manager.Lock lock = new RWLockSource<String>(false).acquire("A");
+        lock.lockUpgradableRead();
+        final CompletableFuture<Void> upgradableReader = CompletableFuture.runAsync(() -> {
+            lock.lockUpgradableRead();
+            lock.unlockUpgradableRead();
+        });
+        try {
+            Thread.sleep(100);
+            Assertions.assertFalse(upgradableReader.isDone());
+        } finally {
+            lock.unlockUpgradableRead();
+        }
+        upgradableReader.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void lockRead_upgradableReadHeld_plainReaderNotBlocked() throws Exception {
+        final Manager.Lock lock = new RWLockSource<String>(false).acquire("A");
+        lock.lockUpgradableRead();
+        try {
+            Assertions.assertTrue(CompletableFuture.supplyAsync(() -> {
+                final boolean locked = tryLockRead(lock);
+                if (locked) {
+                    lock.unlockRead();
+                }
+                return locked;
+            }).get(10, TimeUnit.SECONDS));
+        } finally {
+            lock.unlockUpgradableRead();
+        }
+    }
+
+    private static boolean tryLockRead(Manager.Lock lock) {
+        try {
+            return lock.tryLockRead(50, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
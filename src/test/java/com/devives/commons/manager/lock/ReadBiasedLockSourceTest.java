@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager.lock;
+
+import com.devives.commons.manager.Manager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class ReadBiasedLockSourceTest {
+
+    @Test
+    public void release_idleLocksEnabled_lockReusedWithBias() throws Exception {
+        final ReadBiasedLockSource<String> lockSource = new ReadBiasedLockSource<>(4);
+        final ReadBiasedLockSource<String>.ReadBiasedLock lock = (ReadBiasedLockSource<String>.ReadBiasedLock) lockSource.acquire("A");
+        lock.lockRead();
+        lock.unlockRead();
+        lockSource.release("A");
+        Assertions.assertSame(lock, lockSource.acquire("A"));
+        Assertions.assertTrue(lock.isReadBiased());
+        lockSource.release("A");
+    }
+
+    @Test
+    public void lockRead_reentrantDuringRevocation_notBlocked() throws Exception {
+        final ReadBiasedLockSource<String>.ReadBiasedLock lock =
+                (ReadBiasedLockSource<String>.ReadBiasedLock) new ReadBiasedLockSource<String>().acquire("A");
+        Assertions.assertTrue(lock.isReadBiased());
+        lock.lockRead();
+        final CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            lock.lockWrite();
+            lock.unlockWrite();
+        });
+        try {
+            // The writer holds the underlying write lock and waits for the slot of this thread.
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (lock.isReadBiased() && System.nanoTime() < deadline) {
+                Thread.yield();
+            }
+            Assertions.assertFalse(lock.isReadBiased());
+            Assertions.assertFalse(writer.isDone());
+            // The reentrant reads do not wait for the writer.
+            lock.lockRead();
+            Assertions.assertTrue(lock.tryLockRead(10, TimeUnit.SECONDS));
+            lock.unlockRead();
+            lock.unlockRead();
+            Assertions.assertFalse(writer.isDone());
+        } finally {
+            lock.unlockRead();
+        }
+        writer.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void lockWrite_readersLeft_writerExcludesReaders() throws Exception {
+        final Manager.Lock lock = new ReadBiasedLockSource<String>().acquire("A");
+        lock.lockRead();
+        lock.unlockRead();
+        lock.lockWrite();
+        try {
+            // The write lock owner reads through the underlying lock.
+            lock.lockRead();
+            lock.unlockRead();
+            Assertions.assertFalse(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return lock.tryLockRead(50, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }).get(10, TimeUnit.SECONDS));
+        } finally {
+            lock.unlockWrite();
+        }
+    }
+
+    @Test
+    public void unlockRead_notHeld_illegalMonitorStateException() throws Exception {
+        final Manager.Lock lock = new ReadBiasedLockSource<String>().acquire("A");
+        lock.lockRead();
+        try {
+            final CompletableFuture<Void> foreignUnlock = CompletableFuture.runAsync(lock::unlockRead);
+            final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> foreignUnlock.get(10, TimeUnit.SECONDS));
+            Assertions.assertTrue(exception.getCause() instanceof IllegalMonitorStateException);
+        } finally {
+            lock.unlockRead();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager.lock;
+
+import com.devives.commons.manager.ConcurrentHashManager;
+import com.devives.commons.manager.ManagedAdapter;
+import com.devives.commons.manager.Manager;
+import com.devives.commons.manager.ObjectFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReentrantLockSourceTest {
+
+    private static final int THREAD_COUNT = 100_000;
+    /**
+     * Set by the {@code virtualThreadTest} task of build.gradle, which runs the tagged tests on JDK 21.
+     */
+    private static final String VIRTUAL_THREADS_REQUIRED = "com.devives.commons.manager.virtualThreadsRequired";
+
+    @Test
+    public void computeIfAbsent_recursiveAccess_objectCreated() throws Exception {
+        final Manager<String, String> manager = new ConcurrentHashManager<>(new ReentrantLockSource<>());
+        try {
+            final String a = manager.computeIfAbsent("A", () -> "A", new ManagedAdapter<String>() {
+                @Override
+                public void startObject(String object) throws Exception {
+                    Assertions.assertEquals(object, manager.get(object));
+                }
+
+                @Override
+                public void stopObject(String object) throws Exception {
+                    Assertions.assertEquals(object, manager.get(object));
+                }
+            });
+            Assertions.assertEquals("A", a);
+            Assertions.assertEquals("A", manager.remove("A"));
+        } finally {
+            manager.clear();
+        }
+    }
+
+    /**
+     * Skipped by the default test task on JVMs without virtual threads. The opt-in {@code virtualThreadTest} task runs
+     * it on JDK 21 in a dedicated JVM, whose virtual thread scheduler has a single carrier thread without compensation
+     * (see {@code jdk.virtualThreadScheduler.*} in build.gradle). A waiter pinning the carrier would stop the lock owner
+     * sleeping in {@link ManagedAdapter#startObject(Object)} from ever being mounted again, and the test would time out.
+     */
+    @Test
+    @Tag("virtual-threads")
+    public void computeIfAbsent_virtualThreadsOnOneKey_carrierNotPinned() throws Exception {
+        final ExecutorService executorService = newVirtualThreadPerTaskExecutor();
+        if (executorService == null && Boolean.getBoolean(VIRTUAL_THREADS_REQUIRED)) {
+            Assertions.fail("Virtual threads are required, but not supported by the JVM.");
+        }
+        Assumptions.assumeTrue(executorService != null, "Virtual threads are not supported by the JVM.");
+        final Manager<String, Object> manager = new ConcurrentHashManager<>(new ReentrantLockSource<>());
+        final AtomicInteger createCount = new AtomicInteger();
+        final ObjectFactory<Object> factory = () -> {
+            createCount.incrementAndGet();
+            return new Object();
+        };
+        final ManagedAdapter<Object> adapter = new ManagedAdapter<Object>() {
+            @Override
+            public void startObject(Object object) throws Exception {
+                // The owner of the write lock is unmounted, while the other threads wait for the lock.
+                Thread.sleep(100);
+            }
+
+            @Override
+            public void stopObject(Object object) throws Exception {
+
+            }
+        };
+        try {
+            final List<Future<Object>> futureList = new ArrayList<>(THREAD_COUNT);
+            for (int i = 0; i < THREAD_COUNT; i++) {
+                futureList.add(executorService.submit(() -> manager.computeIfAbsent("key", factory, adapter)));
+            }
+            final Object object = futureList.get(0).get(60, TimeUnit.SECONDS);
+            for (Future<Object> future : futureList) {
+                Assertions.assertSame(object, future.get(60, TimeUnit.SECONDS));
+            }
+            Assertions.assertEquals(1, createCount.get());
+        } finally {
+            executorService.shutdownNow();
+            manager.clear();
+        }
+    }
+
+    /**
+     * The sources are compiled for Java 8, the executor of JDK 21 is looked up reflectively.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager.lock;
+
+import com.devives.commons.manager.Manager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class StampedLockSourceTest {
+
+    @Test
+    public void release_idleLocksEnabled_lockReused() throws Exception {
+        final StampedLockSource<String> lockSource = new StampedLockSource<>(4);
+        final Manager.Lock lock = lockSource.acquire("A");
+        lockSource.release("A");
+        Assertions.assertSame(lock, lockSource.acquire("A"));
+        lockSource.release("A");
+        Assertions.assertEquals(1, lockSource.map_.size());
+    }
+
+    @Test
+    public void validate_noWriter_true() throws Exception {
+        final Manager.Lock lock = new StampedLockSource<String>().acquire("A");
+        final long stamp = lock.tryOptimisticRead();
+        Assertions.assertNotEquals(0L, stamp);
+        // Readers do not invalidate the stamp.
+        lock.lockRead();
+        lock.unlockRead();
+        Assertions.assertTrue(lock.validate(stamp));
+    }
+
+    @Test
+    public void validate_writeLockTaken_falseAndReadLockFallback() throws Exception {
+        final Manager.Lock lock = new StampedLockSource<String>().acquire("A");
+        final long stamp = lock.tryOptimisticRead();
+        lock.lockWrite();
+        // No stamp is issued while the write lock is held.
+        Assertions.assertEquals(0L, lock.tryOptimisticRead());
+        Assertions.assertFalse(lock.validate(0L));
+        lock.unlockWrite();
+        Assertions.assertFalse(lock.validate(stamp));
+        // The caller falls back to the read lock.
+        Assertions.assertTrue(lock.tryLockRead(1, TimeUnit.SECONDS));
+        lock.unlockRead();
+    }
+
+    @Test
+    public void lockWrite_writeOwner_nestedAccessAllowedOthersExcluded() throws Exception {
+        final Manager.Lock lock = new StampedLockSource<String>().acquire("A");
+        lock.lockWrite();
+        try {
+            // The recursive access of the write lock owner does not block.
+            lock.lockRead();
+            lock.lockWrite();
+            lock.unlockWrite();
+            lock.unlockRead();
+            Assertions.assertFalse(CompletableFuture.supplyAsync(() -> tryLockRead(lock)).get(10, TimeUnit.SECONDS));
+            final CompletableFuture<Void> foreignUnlock = CompletableFuture.runAsync(lock::unlockWrite);
+            final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> foreignUnlock.get(10, TimeUnit.SECONDS));
+            Assertions.assertTrue(exception.getCause() instanceof IllegalMonitorStateException);
+        } finally {
+            lock.unlockWrite();
+        }
+        Assertions.assertTrue(CompletableFuture.supplyAsync(() -> {
+            final boolean locked = tryLockRead(lock);
+            lock.unlockRead();
+            return locked;
+        }).get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void downgradeLock_writeOwner_readLockHeld() throws Exception {
+        final Manager.Lock lock = new StampedLockSource<String>().acquire("A");
+        lock.lockWrite();
+        lock.downgradeLock();
+        Assertions.assertThrows(IllegalMonitorStateException.class, lock::unlockWrite);
+        Assertions.assertFalse(CompletableFuture.supplyAsync(() -> {
+            try {
+                return lock.tryLockWrite(50, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }).get(10, TimeUnit.SECONDS));
+        lock.unlockRead();
+    }
+
+    private static boolean tryLockRead(Manager.Lock lock) {
+        try {
+            return lock.tryLockRead(50, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager.lock;
+
+import com.devives.commons.manager.ConcurrentHashManager;
+import com.devives.commons.manager.ManagedAdapter;
+import com.devives.commons.manager.Manager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.*;
+
+public class StripedLockSourceTest {
+
+    @Test
+    public void constructor_stripeCount_roundedUpToPowerOfTwo() throws Exception {
+        Assertions.assertEquals(1, new StripedLockSource<String>(1).getStripeCount());
+        Assertions.assertEquals(8, new StripedLockSource<String>(5).getStripeCount());
+        Assertions.assertEquals(16, new StripedLockSource<String>(16).getStripeCount());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new StripedLockSource<String>(0));
+    }
+
+    @Test
+    public void acquire_keysOnOneStripe_sameLock() throws Exception {
+        final StripedLockSource<String> lockSource = new StripedLockSource<>(1);
+        Assertions.assertSame(lockSource.acquire("A"), lockSource.acquire("B"));
+    }
+
+    @Test
+    public void computeIfAbsent_recursiveAccessToKeyOfSameStripe_objectsCreated() throws Exception {
+        final Manager<String, String> manager = new ConcurrentHashManager<>(new StripedLockSource<>(1));
+        try {
+            final ManagedAdapter<String> adapter = new ManagedAdapter<String>() {
+                @Override
+                public void startObject(String object) throws Exception {
+                    // The write lock of the shared stripe is held by the current thread.
+                    Assertions.assertEquals(object, manager.get(object));
+                    if ("A".equals(object)) {
+                        Assertions.assertEquals("B", manager.get("B"));
+                    }
+                }
+
+                @Override
+                public void stopObject(String object) throws Exception {
+                    Assertions.assertEquals(object, manager.get(object));
+                }
+            };
+            final String a = manager.computeIfAbsent("A", () -> {
+                // Nested creation of the key from the same stripe: read, upgrade and downgrade of the held stripe.
+                Assertions.assertEquals("B", manager.computeIfAbsent("B", () -> "B", adapter));
+                return "A";
+            }, adapter);
+            Assertions.assertEquals("A", a);
+            Assertions.assertEquals(2, manager.size());
+            manager.remove("A");
+            Assertions.assertEquals("B", manager.get("B"));
+        } finally {
+            manager.clear();
+        }
+    }
+
+    @Test
+    public void computeIfAbsent_otherThreadStartsKeyOfSameStripe_waitsForStripe() throws Exception {
+        final Manager<String, String> manager = new ConcurrentHashManager<>(new StripedLockSource<>(1));
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        try {
+            final Future<String> slow = executorService.submit(() -> manager.computeIfAbsent("A", () -> "A", new ManagedAdapter<String>() {
+                @Override
+                public void startObject(String object) throws Exception {
+                    started.countDown();
+                    proceed.await();
+                }
+
+                @Override
+                public void stopObject(String object) throws Exception {
+
+                }
+            }));
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+            final Future<String> blocked = executorService.submit(() -> manager.computeIfAbsent("B", key -> key));
+            // The keys are independent, but the stripe is held by the start of "A".
+            Assertions.assertThrows(TimeoutException.class, () -> blocked.get(200, TimeUnit.MILLISECONDS));
+            proceed.countDown();
+            Assertions.assertEquals("A", slow.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals("B", blocked.get(5, TimeUnit.SECONDS));
+        } finally {
+            proceed.countDown();
+            executorService.shutdownNow();
+            manager.clear();
+        }
+    }
+
+}
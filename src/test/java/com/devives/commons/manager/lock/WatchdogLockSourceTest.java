@@ -0,0 +1,290 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager.lock;
+
+import com.devives.commons.manager.ConcurrentHashManager;
+import com.devives.commons.manager.ManagedAdapter;
+import com.devives.commons.manager.Manager;
+import com.devives.commons.manager.ManagerException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class WatchdogLockSourceTest {
+
+    @Test
+    public void check_startObjectHangs_reportedOnceAndWaitersFailed() throws Exception {
+        final List<WatchdogLockSource.LongHeldLock<String>> reports = new CopyOnWriteArrayList<>();
+        final WatchdogLockSource<String> lockSource = new WatchdogLockSource<>(new RWLockSource<>(false), 50, TimeUnit.MILLISECONDS, reports::add);
+        final Manager<String, String> manager = new ConcurrentHashManager<>(lockSource);
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        try {
+            final Future<String> slow = executorService.submit(() -> manager.computeIfAbsent("A", () -> "A", new ManagedAdapter<String>() {
+                @Override
+                public void startObject(String object) throws Exception {
+                    started.countDown();
+                    proceed.await();
+                }
+
+                @Override
+                public void stopObject(String object) throws Exception {
+
+                }
+            }));
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+            final Future<String> waiter = executorService.submit(() -> manager.get("A"));
+            lockSource.check();
+            Assertions.assertTrue(reports.isEmpty());
+
+            Thread.sleep(100);
+            lockSource.check();
+            lockSource.check();
+            Assertions.assertEquals(1, reports.size());
+            final WatchdogLockSource.LongHeldLock<String> report = reports.get(0);
+            Assertions.assertEquals("A", report.getKey());
+            Assertions.assertTrue(report.getHeld(TimeUnit.MILLISECONDS) >= 50);
+            Assertions.assertTrue(Arrays.stream(report.getOwnerStackTrace()).anyMatch(element -> "startObject".equals(element.getMethodName())));
+
+            report.failWaiters();
+            final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+            Assertions.assertTrue(exception.getCause() instanceof ManagerException, exception.getCause().toString());
+
+            proceed.countDown();
+            Assertions.assertEquals("A", slow.get(5, TimeUnit.SECONDS));
+            // The failure ends with the hold.
+            Assertions.assertEquals("A", manager.get("A"));
+        } finally {
+            proceed.countDown();
+            executorService.shutdownNow();
+            manager.clear();
+        }
+    }
+
+    @Test
+    public void start_scheduler_longHoldReported() throws Exception {
+        final CountDownLatch reported = new CountDownLatch(1);
+        final WatchdogLockSource<String> lockSource = new WatchdogLockSource<>(new RWLockSource<>(false), 20, TimeUnit.MILLISECONDS, lock -> reported.countDown());
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try {
+            lockSource.start(scheduler);
+            final Manager.Lock lock = lockSource.acquire("A");
+            lock.lockWrite();
+            try {
+                Assertions.assertTrue(reported.await(5, TimeUnit.SECONDS));
+            } finally {
+                lock.unlockWrite();
+                lockSource.release("A");
+            }
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failWaiters_holdEnded_waitersOfNextHoldNotFailed() throws Exception {
+        final List<WatchdogLockSource.LongHeldLock<String>> reports = new CopyOnWriteArrayList<>();
+        final WatchdogLockSource<String> lockSource = new WatchdogLockSource<>(new RWLockSource<>(false), 20, TimeUnit.MILLISECONDS, reports::add);
+        final Manager.Lock lock = lockSource.acquire("A");
+        try {
+            lock.lockWrite();
+            Thread.sleep(50);
+            lockSource.check();
+            lock.unlockWrite();
+            Assertions.assertEquals(1, reports.size());
+
+            lock.lockWrite();
+            final CompletableFuture<Void> waiter;
+            try {
+                // The report of the ended hold arrives late.
+                reports.get(0).failWaiters();
+                waiter = CompletableFuture.runAsync(() -> {
+                    lock.lockRead();
+                    lock.unlockRead();
+                });
+                Thread.sleep(100);
+                Assertions.assertFalse(waiter.isDone());
+            } finally {
+                lock.unlockWrite();
+            }
+            waiter.get(5, TimeUnit.SECONDS);
+        } finally {
+            lockSource.release("A");
+        }
+    }
+
+    @Test
+    public void lockReadInterruptibly_waitersFailed_managerExceptionThrown() throws Exception {
+        final List<WatchdogLockSource.LongHeldLock<String>> reports = new CopyOnWriteArrayList<>();
+        final WatchdogLockSource<String> lockSource = new WatchdogLockSource<>(new RWLockSource<>(false), 20, TimeUnit.MILLISECONDS, reports::add);
+        final Manager.Lock lock = lockSource.acquire("A");
+        try {
+            lock.lockWrite();
+            try {
+                final CompletableFuture<Void> waiter = CompletableFuture.runAsync(() -> {
+                    try {
+                        lock.lockReadInterruptibly();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    lock.unlockRead();
+                });
+                Thread.sleep(50);
+                lockSource.check();
+                Assertions.assertEquals(1, reports.size());
+                reports.get(0).failWaiters();
+                final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+                Assertions.assertTrue(exception.getCause() instanceof ManagerException, exception.getCause().toString());
+            } finally {
+                lock.unlockWrite();
+            }
+        } finally {
+            lockSource.release("A");
+        }
+    }
+
+    @Test
+    public void computeIfAbsent_startObjectHangs_upgradableReadWaiterFailed() throws Exception {
+        final List<WatchdogLockSource.LongHeldLock<String>> reports = new CopyOnWriteArrayList<>();
+        final CountDownLatch missed = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        final AtomicReference<Thread> waiterThread = new AtomicReference<>();
+        // The waiter misses under the read lock before the start, and waits for the upgradable read lock.
+        final Manager.LockSource<String> pausingSource = new AbstractDelegatingLockSource<String>(new RWLockSource<>(false)) {
+            @Override
+            protected DelegatingLock newLock(String key, Manager.Lock delegate) {
+                return new DelegatingLock(key, delegate) {
+                    @Override
+                    public void unlockRead() {
+                        super.unlockRead();
+                        if (Thread.currentThread() == waiterThread.get()) {
+                            missed.countDown();
+                            try {
+                                started.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                    }
+                };
+            }
+        };
+        final WatchdogLockSource<String> lockSource = new WatchdogLockSource<>(pausingSource, 50, TimeUnit.MILLISECONDS, reports::add);
+        final Manager<String, String> manager = new ConcurrentHashManager<>(lockSource);
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        final ManagedAdapter<String> adapter = new ManagedAdapter<String>() {
+            @Override
+            public void startObject(String object) throws Exception {
+                started.countDown();
+                proceed.await();
+            }
+
+            @Override
+            public void stopObject(String object) throws Exception {
+
+            }
+        };
+        try {
+            final Future<String> waiter = executorService.submit(() -> {
+                waiterThread.set(Thread.currentThread());
+                return manager.computeIfAbsent("A", () -> "B", adapter);
+            });
+            Assertions.assertTrue(missed.await(5, TimeUnit.SECONDS));
+            final Future<String> slow = executorService.submit(() -> manager.computeIfAbsent("A", () -> "A", adapter));
+            Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            lockSource.check();
+            Assertions.assertEquals(1, reports.size());
+
+            reports.get(0).failWaiters();
+            final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+            Assertions.assertTrue(exception.getCause() instanceof ManagerException, exception.getCause().toString());
+
+            proceed.countDown();
+            Assertions.assertEquals("A", slow.get(5, TimeUnit.SECONDS));
+        } finally {
+            proceed.countDown();
+            executorService.shutdownNow();
+            manager.clear();
+        }
+    }
+
+    @Test
+    public void upgradeLock_waitersFailed_readLockGivenUp() throws Exception {
+        final List<WatchdogLockSource.LongHeldLock<String>> reports = new CopyOnWriteArrayList<>();
+        final WatchdogLockSource<String> lockSource = new WatchdogLockSource<>(new RWLockSource<>(false), 20, TimeUnit.MILLISECONDS, reports::add);
+        final Manager.Lock lock = lockSource.acquire("A");
+        final CountDownLatch readLocked = new CountDownLatch(1);
+        final CountDownLatch upgrade = new CountDownLatch(1);
+        final CountDownLatch writeLocked = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            final Future<?> upgrader = executorService.submit(() -> {
+                lock.lockRead();
+                try {
+                    readLocked.countDown();
+                    upgrade.await();
+                    lock.upgradeLock();
+                    lock.downgradeLock();
+                } finally {
+                    lock.unlockRead();
+                }
+                return null;
+            });
+            Assertions.assertTrue(readLocked.await(5, TimeUnit.SECONDS));
+            final Future<?> writer = executorService.submit(() -> {
+                lock.lockWrite();
+                try {
+                    writeLocked.countDown();
+                    proceed.await();
+                } finally {
+                    lock.unlockWrite();
+                }
+                return null;
+            });
+            // The writer queues before the upgrade and gets the lock, when the read lock is released.
+            Thread.sleep(50);
+            upgrade.countDown();
+            Assertions.assertTrue(writeLocked.await(5, TimeUnit.SECONDS));
+            Thread.sleep(50);
+            lockSource.check();
+            Assertions.assertEquals(1, reports.size());
+
+            reports.get(0).failWaiters();
+            final ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> upgrader.get(5, TimeUnit.SECONDS));
+            Assertions.assertTrue(exception.getCause() instanceof ManagerException, exception.getCause().toString());
+
+            proceed.countDown();
+            writer.get(5, TimeUnit.SECONDS);
+            // The read lock given up by the failed upgrade is not held anymore.
+            Assertions.assertTrue(lock.tryLockWrite(0L, TimeUnit.NANOSECONDS));
+            lock.unlockWrite();
+        } finally {
+            proceed.countDown();
+            executorService.shutdownNow();
+            lockSource.release("A");
+        }
+    }
+
+}
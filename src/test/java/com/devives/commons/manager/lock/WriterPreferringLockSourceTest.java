@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.devives.commons.manager.lock;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WriterPreferringLockSourceTest {
+
+    @Test
+    public void lockWrite_continuousReaders_writerGetsInAfterBoundedBarging() throws Exception {
+        final int maxBargingReaders = 2;
+        final WriterPreferringLockSource<String> lockSource = new WriterPreferringLockSource<>(maxBargingReaders);
+        final WriterPreferringLockSource<String>.WriterPreferringLock lock =
+                (WriterPreferringLockSource<String>.WriterPreferringLock) lockSource.acquire("A");
+        final AtomicBoolean writerQueued = new AtomicBoolean();
+        final AtomicBoolean writerIn = new AtomicBoolean();
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicInteger bargedReaders = new AtomicInteger();
+        // The first read hold makes the writer wait.
+        lock.lockRead();
+        final List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final Thread reader = new Thread(() -> {
+                while (!stop.get()) {
+                    final boolean afterWriterQueued = writerQueued.get();
+                    lock.lockRead();
+                    try {
+                        // The writer can not be in while the read lock is held.
+                        if (afterWriterQueued && !writerIn.get()) {
+                            bargedReaders.incrementAndGet();
+                        }
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        return;
+                    } finally {
+                        lock.unlockRead();
+                    }
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        final CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            lock.lockWrite();
+            try {
+                writerIn.set(true);
+            } finally {
+                lock.unlockWrite();
+            }
+        });
+        try {
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (lock.waitingWriters_ == 0 && !writer.isDone() && System.nanoTime() < deadline) {
+                Thread.yield();
+            }
+            writerQueued.set(true);
+            lock.unlockRead();
+            writer.get(10, TimeUnit.SECONDS);
+        } finally {
+            stop.set(true);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+        }
+        Assertions.assertTrue(writerIn.get());
+        Assertions.assertTrue(bargedReaders.get() <= maxBargingReaders, "barged readers: " + bargedReaders.get());
+    }
+
+    @Test
+    public void tryLockRead_bargingExhausted_waitsForWriter() throws Exception {
+        final WriterPreferringLockSource<String> lockSource = new WriterPreferringLockSource<>(0);
+        final WriterPreferringLockSource<String>.WriterPreferringLock lock =
+                (WriterPreferringLockSource<String>.WriterPreferringLock) lockSource.acquire("A");
+        lock.lockRead();
+        final CompletableFuture<Boolean> writer = CompletableFuture.supplyAsync(() -> {
+            try {
+                final boolean locked = lock.tryLockWrite(10, TimeUnit.SECONDS);
+                lock.unlockWrite();
+                return locked;
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        try {
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (lock.waitingWriters_ == 0 && System.nanoTime() < deadline) {
+                Thread.yield();
+            }
+            // A new reader does not barge ahead of the waiting writer.
+            Assertions.assertFalse(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return lock.tryLockRead(50, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }).get(10, TimeUnit.SECONDS));
+            // The reader already holding the lock does not wait for the writer.
+            Assertions.assertTrue(lock.tryLockRead(50, TimeUnit.MILLISECONDS));
+            lock.unlockRead();
+        } finally {
+            lock.unlockRead();
+        }
+        Assertions.assertTrue(writer.get(10, TimeUnit.SECONDS));
+    }
+}